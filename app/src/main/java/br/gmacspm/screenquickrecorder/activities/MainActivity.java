@@ -4,14 +4,32 @@ import android.os.Bundle;
 
 import androidx.activity.EdgeToEdge;
 import androidx.appcompat.app.AppCompatActivity;
+import androidx.appcompat.widget.SwitchCompat;
 import androidx.core.graphics.Insets;
 import androidx.core.view.ViewCompat;
 import androidx.core.view.WindowInsetsCompat;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+
+import java.io.File;
 
 import br.gmacspm.screenquickrecorder.R;
+import br.gmacspm.screenquickrecorder.library.RecordingIndex;
+import br.gmacspm.screenquickrecorder.library.RecordingsAdapter;
+import br.gmacspm.screenquickrecorder.library.ThumbnailCache;
+import br.gmacspm.screenquickrecorder.service.RecordingService;
 
 public class MainActivity extends AppCompatActivity {
 
+    private ThumbnailCache thumbnailCache;
+    private RecordingsAdapter recordingsAdapter;
+    private RecordingIndex recordingIndex;
+    private final Runnable onIndexChanged = () -> runOnUiThread(() -> {
+        if (!isDestroyed()) {
+            recordingsAdapter.reloadIfChanged();
+        }
+    });
+
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
@@ -22,5 +40,46 @@ public class MainActivity extends AppCompatActivity {
             v.setPadding(systemBars.left, systemBars.top, systemBars.right, systemBars.bottom);
             return insets;
         });
+
+        recordingIndex = RecordingIndex.getInstance(this);
+        thumbnailCache = new ThumbnailCache(this,
+                getResources().getDimensionPixelSize(R.dimen.thumbnail_width),
+                getResources().getDimensionPixelSize(R.dimen.thumbnail_height));
+        recordingsAdapter = new RecordingsAdapter(recordingIndex, thumbnailCache);
+
+        RecyclerView list = findViewById(R.id.recordings_list);
+        list.setLayoutManager(new LinearLayoutManager(this));
+        list.setHasFixedSize(true);
+        list.setAdapter(recordingsAdapter);
+
+        // Vale a partir da próxima gravação; o padrão é desligado
+        SwitchCompat liveStreamSwitch = findViewById(R.id.live_stream_switch);
+        liveStreamSwitch.setChecked(RecordingService.isLiveStreamEnabled(this));
+        liveStreamSwitch.setOnCheckedChangeListener((button, checked) ->
+                RecordingService.setLiveStreamEnabled(this, checked));
+
+        // Gravações anteriores ao índice são importadas uma única vez
+        recordingIndex.backfillOnceAsync(new File(RecordingService.getExternalMediaPath(this)));
+    }
+
+    @Override
+    protected void onStart() {
+        super.onStart();
+        // Só recarrega se algo foi indexado enquanto a tela estava fora; a rolagem se mantém
+        recordingIndex.addOnChangedListener(onIndexChanged);
+        recordingsAdapter.reloadIfChanged();
+    }
+
+    @Override
+    protected void onStop() {
+        recordingIndex.removeOnChangedListener(onIndexChanged);
+        super.onStop();
+    }
+
+    @Override
+    protected void onDestroy() {
+        recordingsAdapter.release();
+        thumbnailCache.release();
+        super.onDestroy();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,34 @@
+package br.gmacspm.screenquickrecorder.library;
+
+import java.io.File;
+
+/**
+ * Metadados de uma gravação finalizada, como guardados no {@link RecordingIndex}.
+ */
+public class RecordingEntry {
+    public long id;
+    public final String path;
+    public final long durationMs;
+    public final int width;
+    public final int height;
+    public final long sizeBytes;
+    public final String videoCodec;
+    public final String audioCodec;
+    public final long createdAt;
+
+    public RecordingEntry(String path, long durationMs, int width, int height, long sizeBytes,
+                          String videoCodec, String audioCodec, long createdAt) {
+        this.path = path;
+        this.durationMs = durationMs;
+        this.width = width;
+        this.height = height;
+        this.sizeBytes = sizeBytes;
+        this.videoCodec = videoCodec;
+        this.audioCodec = audioCodec;
+        this.createdAt = createdAt;
+    }
+
+    public String getName() {
+        return new File(path).getName();
+    }
+}
@@ -0,0 +1,282 @@
+package br.gmacspm.screenquickrecorder.library;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+import android.media.MediaExtractor;
+import android.media.MediaFormat;
+import android.util.Log;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Índice persistente das gravações. Cada arquivo entra aqui uma única vez, quando o
+ * {@link br.gmacspm.screenquickrecorder.muxer.MediaMuxerWrapper} o finaliza, então a
+ * biblioteca nunca precisa varrer o diretório de mídia para montar a lista.
+ */
+public class RecordingIndex extends SQLiteOpenHelper {
+
+    private static final String TAG = "RecordingIndex";
+    private static final String DB_NAME = "recordings.db";
+    private static final int DB_VERSION = 1;
+
+    private static final String TABLE = "recordings";
+    private static final String COL_ID = "_id";
+    private static final String COL_PATH = "path";
+    private static final String COL_DURATION = "duration_ms";
+    private static final String COL_WIDTH = "width";
+    private static final String COL_HEIGHT = "height";
+    private static final String COL_SIZE = "size_bytes";
+    private static final String COL_VIDEO_CODEC = "video_codec";
+    private static final String COL_AUDIO_CODEC = "audio_codec";
+    private static final String COL_CREATED_AT = "created_at";
+
+    private static final String PREFS_NAME = "recording_index";
+    private static final String PREF_BACKFILL_DONE = "backfill_done";
+    private static final int BACKFILL_BATCH_SIZE = 50;
+
+    private static volatile RecordingIndex instance;
+
+    private final Context appContext;
+    // Escritas em uma única thread para não bloquear quem finaliza o arquivo
+    private final ExecutorService writeExecutor = Executors.newSingleThreadExecutor();
+    // Incrementada a cada gravação nova, para a lista saber quando precisa recarregar
+    private final AtomicLong version = new AtomicLong();
+    private final List<Runnable> changeListeners = new CopyOnWriteArrayList<>();
+
+    public static RecordingIndex getInstance(Context context) {
+        if (instance == null) {
+            synchronized (RecordingIndex.class) {
+                if (instance == null) {
+                    instance = new RecordingIndex(context.getApplicationContext());
+                }
+            }
+        }
+        return instance;
+    }
+
+    private RecordingIndex(Context context) {
+        super(context, DB_NAME, null, DB_VERSION);
+        this.appContext = context;
+        // Com WAL a lista lê a primeira página enquanto a importação ou um insert escreve
+        setWriteAheadLoggingEnabled(true);
+    }
+
+    @Override
+    public void onCreate(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE " + TABLE + " ("
+                + COL_ID + " INTEGER PRIMARY KEY AUTOINCREMENT, "
+                + COL_PATH + " TEXT NOT NULL UNIQUE, "
+                + COL_DURATION + " INTEGER NOT NULL, "
+                + COL_WIDTH + " INTEGER NOT NULL, "
+                + COL_HEIGHT + " INTEGER NOT NULL, "
+                + COL_SIZE + " INTEGER NOT NULL, "
+                + COL_VIDEO_CODEC + " TEXT, "
+                + COL_AUDIO_CODEC + " TEXT, "
+                + COL_CREATED_AT + " INTEGER NOT NULL)");
+        // A listagem é sempre por data decrescente; o índice mantém a primeira página O(log n)
+        db.execSQL("CREATE INDEX idx_" + TABLE + "_created ON " + TABLE
+                + " (" + COL_CREATED_AT + " DESC, " + COL_ID + " DESC)");
+    }
+
+    @Override
+    public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        db.execSQL("DROP TABLE IF EXISTS " + TABLE);
+        onCreate(db);
+        appContext.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE)
+                .edit().remove(PREF_BACKFILL_DONE).apply();
+    }
+
+    public long getVersion() {
+        return version.get();
+    }
+
+    /** O listener é chamado na thread de escrita do índice. */
+    public void addOnChangedListener(Runnable listener) {
+        changeListeners.add(listener);
+    }
+
+    public void removeOnChangedListener(Runnable listener) {
+        changeListeners.remove(listener);
+    }
+
+    private void notifyChanged() {
+        version.incrementAndGet();
+        for (Runnable listener : changeListeners) {
+            listener.run();
+        }
+    }
+
+    public void insertAsync(RecordingEntry entry) {
+        writeExecutor.execute(() -> insert(entry));
+    }
+
+    public void insert(RecordingEntry entry) {
+        insertRow(entry);
+        notifyChanged();
+    }
+
+    private void insertRow(RecordingEntry entry) {
+        ContentValues values = new ContentValues();
+        values.put(COL_PATH, entry.path);
+        values.put(COL_DURATION, entry.durationMs);
+        values.put(COL_WIDTH, entry.width);
+        values.put(COL_HEIGHT, entry.height);
+        values.put(COL_SIZE, entry.sizeBytes);
+        values.put(COL_VIDEO_CODEC, entry.videoCodec);
+        values.put(COL_AUDIO_CODEC, entry.audioCodec);
+        values.put(COL_CREATED_AT, entry.createdAt);
+        entry.id = getWritableDatabase().insertWithOnConflict(
+                TABLE, null, values, SQLiteDatabase.CONFLICT_REPLACE);
+        Log.d(TAG, "Gravação indexada: " + entry.path);
+    }
+
+    /**
+     * Remove a gravação cujo arquivo não existe mais. Não altera a versão: quem detecta a
+     * ausência já tira a linha da lista, e recarregar tudo perderia a rolagem.
+     */
+    public void deleteAsync(String path) {
+        writeExecutor.execute(() -> {
+            getWritableDatabase().delete(TABLE, COL_PATH + " = ?", new String[]{path});
+            Log.d(TAG, "Gravação removida do índice: " + path);
+        });
+    }
+
+    /**
+     * Retorna até {@code limit} gravações mais antigas que {@code after}, ou a primeira
+     * página quando {@code after} é nulo. A paginação é por chave (created_at, _id) em vez
+     * de OFFSET, então o custo de cada página não cresce com o tamanho da biblioteca.
+     */
+    public List<RecordingEntry> queryPage(RecordingEntry after, int limit) {
+        String selection = null;
+        String[] args = null;
+        if (after != null) {
+            selection = COL_CREATED_AT + " < ? OR (" + COL_CREATED_AT + " = ? AND " + COL_ID + " < ?)";
+            args = new String[]{
+                    String.valueOf(after.createdAt),
+                    String.valueOf(after.createdAt),
+                    String.valueOf(after.id)
+            };
+        }
+
+        List<RecordingEntry> page = new ArrayList<>(limit);
+        try (Cursor c = getReadableDatabase().query(TABLE, null, selection, args, null, null,
+                COL_CREATED_AT + " DESC, " + COL_ID + " DESC", String.valueOf(limit))) {
+            int iId = c.getColumnIndexOrThrow(COL_ID);
+            int iPath = c.getColumnIndexOrThrow(COL_PATH);
+            int iDuration = c.getColumnIndexOrThrow(COL_DURATION);
+            int iWidth = c.getColumnIndexOrThrow(COL_WIDTH);
+            int iHeight = c.getColumnIndexOrThrow(COL_HEIGHT);
+            int iSize = c.getColumnIndexOrThrow(COL_SIZE);
+            int iVideo = c.getColumnIndexOrThrow(COL_VIDEO_CODEC);
+            int iAudio = c.getColumnIndexOrThrow(COL_AUDIO_CODEC);
+            int iCreated = c.getColumnIndexOrThrow(COL_CREATED_AT);
+            while (c.moveToNext()) {
+                RecordingEntry entry = new RecordingEntry(
+                        c.getString(iPath),
+                        c.getLong(iDuration),
+                        c.getInt(iWidth),
+                        c.getInt(iHeight),
+                        c.getLong(iSize),
+                        c.getString(iVideo),
+                        c.getString(iAudio),
+                        c.getLong(iCreated));
+                entry.id = c.getLong(iId);
+                page.add(entry);
+            }
+        }
+        return page;
+    }
+
+    /**
+     * Importa, uma única vez, gravações feitas antes de existir o índice. Depois disso o
+     * diretório não é mais varrido; novas gravações chegam via {@link #insertAsync}.
+     */
+    public void backfillOnceAsync(File dir) {
+        SharedPreferences prefs = appContext.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        if (prefs.getBoolean(PREF_BACKFILL_DONE, false)) {
+            return;
+        }
+        writeExecutor.execute(() -> {
+            File[] files = dir.listFiles((d, name) -> name.endsWith(".mp4"));
+            if (files != null) {
+                // A sonda do MediaExtractor roda fora da transação; cada lote entra de uma vez
+                // e já aparece na lista, sem esperar a biblioteca inteira
+                List<RecordingEntry> batch = new ArrayList<>(BACKFILL_BATCH_SIZE);
+                for (File file : files) {
+                    RecordingEntry entry = probe(file);
+                    if (entry != null) {
+                        batch.add(entry);
+                    }
+                    if (batch.size() == BACKFILL_BATCH_SIZE) {
+                        insertBatch(batch);
+                    }
+                }
+                insertBatch(batch);
+            }
+            prefs.edit().putBoolean(PREF_BACKFILL_DONE, true).apply();
+            Log.i(TAG, "Importação inicial concluída.");
+        });
+    }
+
+    private void insertBatch(List<RecordingEntry> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        SQLiteDatabase db = getWritableDatabase();
+        db.beginTransaction();
+        try {
+            for (RecordingEntry entry : batch) {
+                insertRow(entry);
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+        batch.clear();
+        notifyChanged();
+    }
+
+    private static RecordingEntry probe(File file) {
+        MediaExtractor extractor = new MediaExtractor();
+        try {
+            extractor.setDataSource(file.getAbsolutePath());
+            long durationUs = 0;
+            int width = 0;
+            int height = 0;
+            String videoCodec = null;
+            String audioCodec = null;
+            for (int i = 0; i < extractor.getTrackCount(); i++) {
+                MediaFormat format = extractor.getTrackFormat(i);
+                String mime = format.getString(MediaFormat.KEY_MIME);
+                if (format.containsKey(MediaFormat.KEY_DURATION)) {
+                    durationUs = Math.max(durationUs, format.getLong(MediaFormat.KEY_DURATION));
+                }
+                if (mime != null && mime.startsWith("video/")) {
+                    videoCodec = mime;
+                    width = format.getInteger(MediaFormat.KEY_WIDTH);
+                    height = format.getInteger(MediaFormat.KEY_HEIGHT);
+                } else if (mime != null && mime.startsWith("audio/")) {
+                    audioCodec = mime;
+                }
+            }
+            return new RecordingEntry(file.getAbsolutePath(), durationUs / 1000, width, height,
+                    file.length(), videoCodec, audioCodec, file.lastModified());
+        } catch (IOException e) {
+            Log.w(TAG, "Arquivo ignorado na importação: " + file, e);
+            return null;
+        } finally {
+            extractor.release();
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package br.gmacspm.screenquickrecorder.library;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.text.format.DateUtils;
+import android.text.format.Formatter;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.ImageView;
+import android.widget.TextView;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.RecyclerView;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import br.gmacspm.screenquickrecorder.R;
+
+/**
+ * Lista as gravações do {@link RecordingIndex} em páginas, carregando a próxima página
+ * conforme o usuário se aproxima do fim da lista.
+ */
+public class RecordingsAdapter extends RecyclerView.Adapter<RecordingsAdapter.ViewHolder> {
+
+    private static final int PAGE_SIZE = 50;
+    private static final int PREFETCH_DISTANCE = 10;
+
+    private final RecordingIndex index;
+    private final ThumbnailCache thumbnails;
+    private final List<RecordingEntry> items = new ArrayList<>();
+    private final ExecutorService pageExecutor = Executors.newSingleThreadExecutor();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    private boolean loading = false;
+    private boolean endReached = false;
+    private int generation = 0;
+    private long loadedVersion = -1;
+
+    public RecordingsAdapter(RecordingIndex index, ThumbnailCache thumbnails) {
+        this.index = index;
+        this.thumbnails = thumbnails;
+        thumbnails.setOnMissingListener(this::onRecordingMissing);
+    }
+
+    /** Recarrega apenas se o índice mudou desde a última carga, preservando a rolagem. */
+    public void reloadIfChanged() {
+        if (index.getVersion() != loadedVersion) {
+            reload();
+        }
+    }
+
+    public void reload() {
+        loadedVersion = index.getVersion();
+        int removed = items.size();
+        items.clear();
+        notifyItemRangeRemoved(0, removed);
+        generation++;
+        loading = false;
+        endReached = false;
+        loadNextPage();
+    }
+
+    private void loadNextPage() {
+        if (loading || endReached) {
+            return;
+        }
+        loading = true;
+        final int requestGeneration = generation;
+        final RecordingEntry after = items.isEmpty() ? null : items.get(items.size() - 1);
+        pageExecutor.execute(() -> {
+            List<RecordingEntry> page = index.queryPage(after, PAGE_SIZE);
+            mainHandler.post(() -> {
+                // Descarta páginas pedidas antes de um reload()
+                if (requestGeneration != generation) {
+                    return;
+                }
+                loading = false;
+                if (page.size() < PAGE_SIZE) {
+                    endReached = true;
+                }
+                int start = items.size();
+                items.addAll(page);
+                notifyItemRangeInserted(start, page.size());
+            });
+        });
+    }
+
+    @NonNull
+    @Override
+    public ViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        View view = LayoutInflater.from(parent.getContext())
+                .inflate(R.layout.item_recording, parent, false);
+        return new ViewHolder(view);
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull ViewHolder holder, int position) {
+        RecordingEntry entry = items.get(position);
+
+        holder.name.setText(entry.getName());
+        holder.details.setText(String.format(Locale.getDefault(), "%s · %dx%d · %s · %s",
+                DateUtils.formatElapsedTime(entry.durationMs / 1000),
+                entry.width, entry.height,
+                shortCodec(entry.videoCodec),
+                Formatter.formatShortFileSize(holder.itemView.getContext(), entry.sizeBytes)));
+
+        // A tag evita que uma carga antiga pinte um ViewHolder já reciclado
+        Object previous = holder.thumbnail.getTag();
+        if (previous != null && !previous.equals(entry.path)) {
+            thumbnails.cancel((String) previous);
+        }
+        holder.thumbnail.setTag(entry.path);
+        holder.thumbnail.setImageBitmap(thumbnails.get(entry.path, (path, bitmap) -> {
+            if (path.equals(holder.thumbnail.getTag())) {
+                holder.thumbnail.setImageBitmap(bitmap);
+            }
+        }));
+
+        if (position >= items.size() - PREFETCH_DISTANCE) {
+            loadNextPage();
+        }
+    }
+
+    @Override
+    public void onViewRecycled(@NonNull ViewHolder holder) {
+        // A linha saiu da tela: a miniatura dela não precisa mais ser decodificada
+        Object tag = holder.thumbnail.getTag();
+        if (tag != null) {
+            thumbnails.cancel((String) tag);
+            holder.thumbnail.setTag(null);
+        }
+    }
+
+    private void onRecordingMissing(String path) {
+        // Arquivo apagado fora do app: some da lista e do índice
+        for (int i = 0; i < items.size(); i++) {
+            if (items.get(i).path.equals(path)) {
+                items.remove(i);
+                notifyItemRemoved(i);
+                break;
+            }
+        }
+        index.deleteAsync(path);
+    }
+
+    @Override
+    public int getItemCount() {
+        return items.size();
+    }
+
+    public void release() {
+        pageExecutor.shutdownNow();
+    }
+
+    private static String shortCodec(String mime) {
+        if (mime == null) {
+            return "?";
+        }
+        int slash = mime.indexOf('/');
+        return (slash >= 0 ? mime.substring(slash + 1) : mime).toUpperCase(Locale.US);
+    }
+
+    static class ViewHolder extends RecyclerView.ViewHolder {
+        final ImageView thumbnail;
+        final TextView name;
+        final TextView details;
+
+        ViewHolder(@NonNull View itemView) {
+            super(itemView);
+            thumbnail = itemView.findViewById(R.id.recording_thumbnail);
+            name = itemView.findViewById(R.id.recording_name);
+            details = itemView.findViewById(R.id.recording_details);
+        }
+    }
+}
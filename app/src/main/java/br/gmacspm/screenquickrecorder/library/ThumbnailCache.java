@@ -0,0 +1,221 @@
+package br.gmacspm.screenquickrecorder.library;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.media.ThumbnailUtils;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+import android.util.LruCache;
+import android.util.Size;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Miniaturas das gravações, decodificadas sob demanda em segundo plano.
+ * Primeiro nível em memória (LRU limitado em bytes), segundo nível em disco no cache do app.
+ *
+ * Leituras do disco e extrações de quadro ficam em executores separados, para que uma miniatura
+ * já em disco não espere atrás de extrações. As extrações atendem o pedido mais novo primeiro,
+ * e pedidos cancelados (linhas recicladas) são pulados antes de decodificar.
+ */
+public class ThumbnailCache {
+
+    private static final String TAG = "ThumbnailCache";
+    private static final String DIR_NAME = "thumbnails";
+    private static final int JPEG_QUALITY = 80;
+    private static final int EXTRACT_THREADS = 2;
+
+    public interface Callback {
+        void onThumbnail(String path, Bitmap bitmap);
+    }
+
+    public interface OnMissingListener {
+        void onMissing(String path);
+    }
+
+    private final LruCache<String, Bitmap> memoryCache;
+    private final File diskDir;
+    private final Size size;
+    private final ThreadPoolExecutor diskExecutor;
+    private final ThreadPoolExecutor extractExecutor;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    // Protegidos por "this": quem ainda quer cada miniatura e o que já está na fila
+    private final Map<String, Callback> wanted = new HashMap<>();
+    private final Set<String> inFlight = new HashSet<>();
+    private OnMissingListener missingListener;
+    // Depois do release as tarefas em andamento terminam sem enfileirar nem entregar nada
+    private volatile boolean released = false;
+
+    public ThumbnailCache(Context context, int widthPx, int heightPx) {
+        this.size = new Size(widthPx, heightPx);
+        this.diskDir = new File(context.getCacheDir(), DIR_NAME);
+        if (!diskDir.exists()) {
+            diskDir.mkdirs();
+        }
+
+        // 1/8 do heap disponível, contado pelo tamanho real de cada bitmap
+        int maxBytes = (int) Math.min(Integer.MAX_VALUE, Runtime.getRuntime().maxMemory() / 8);
+        memoryCache = new LruCache<String, Bitmap>(maxBytes) {
+            @Override
+            protected int sizeOf(String key, Bitmap value) {
+                return value.getByteCount();
+            }
+        };
+
+        // Tarefas recusadas após o release são descartadas em vez de lançar na thread do pool
+        diskExecutor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(), new ThreadPoolExecutor.DiscardPolicy());
+        // Fila LIFO: ao rolar rápido, as linhas visíveis agora passam na frente das antigas
+        extractExecutor = new ThreadPoolExecutor(EXTRACT_THREADS, EXTRACT_THREADS,
+                0L, TimeUnit.MILLISECONDS, new LinkedBlockingDeque<Runnable>() {
+                    @Override
+                    public boolean offer(Runnable runnable) {
+                        return offerFirst(runnable);
+                    }
+                }, new ThreadPoolExecutor.DiscardPolicy());
+    }
+
+    public void setOnMissingListener(OnMissingListener listener) {
+        this.missingListener = listener;
+    }
+
+    /**
+     * Retorna a miniatura se estiver em memória; caso contrário agenda a carga e entrega
+     * o resultado na main thread via {@code callback}. Um novo pedido para o mesmo caminho
+     * substitui o callback anterior em vez de enfileirar outra carga.
+     */
+    public Bitmap get(String path, Callback callback) {
+        Bitmap cached = memoryCache.get(path);
+        if (cached != null || released) {
+            return cached;
+        }
+        synchronized (this) {
+            wanted.put(path, callback);
+            if (!inFlight.add(path)) {
+                return null;
+            }
+        }
+        diskExecutor.execute(() -> loadFromDisk(path));
+        return null;
+    }
+
+    /** Desiste da miniatura, por exemplo quando a linha que a pediu foi reciclada. */
+    public synchronized void cancel(String path) {
+        wanted.remove(path);
+    }
+
+    /** Retorna se a carga ainda deve seguir; se não, libera o caminho para um novo pedido. */
+    private synchronized boolean stillWanted(String path) {
+        if (!released && wanted.containsKey(path)) {
+            return true;
+        }
+        inFlight.remove(path);
+        return false;
+    }
+
+    private void loadFromDisk(String path) {
+        if (!stillWanted(path)) {
+            return;
+        }
+        if (!new File(path).exists()) {
+            finish(path, null);
+            diskFileFor(path).delete();
+            mainHandler.post(() -> {
+                if (!released && missingListener != null) {
+                    missingListener.onMissing(path);
+                }
+            });
+            return;
+        }
+        File diskFile = diskFileFor(path);
+        if (diskFile.exists()) {
+            Bitmap bitmap = BitmapFactory.decodeFile(diskFile.getAbsolutePath());
+            if (bitmap != null) {
+                finish(path, bitmap);
+                return;
+            }
+        }
+        if (!released) {
+            extractExecutor.execute(() -> extract(path, diskFile));
+        }
+    }
+
+    private void extract(String path, File diskFile) {
+        if (!stillWanted(path)) {
+            return;
+        }
+        Bitmap bitmap;
+        try {
+            bitmap = ThumbnailUtils.createVideoThumbnail(new File(path), size, null);
+        } catch (IOException e) {
+            Log.w(TAG, "Falha ao gerar miniatura: " + path, e);
+            finish(path, null);
+            return;
+        }
+
+        if (released) {
+            return;
+        }
+        try (FileOutputStream out = new FileOutputStream(diskFile)) {
+            bitmap.compress(Bitmap.CompressFormat.JPEG, JPEG_QUALITY, out);
+        } catch (IOException e) {
+            Log.w(TAG, "Falha ao salvar miniatura em disco: " + diskFile, e);
+        }
+        finish(path, bitmap);
+    }
+
+    private void finish(String path, Bitmap bitmap) {
+        if (released) {
+            return;
+        }
+        if (bitmap != null) {
+            memoryCache.put(path, bitmap);
+        }
+        synchronized (this) {
+            inFlight.remove(path);
+        }
+        mainHandler.post(() -> {
+            if (released) {
+                return;
+            }
+            Callback callback;
+            synchronized (this) {
+                callback = wanted.remove(path);
+            }
+            if (callback != null && bitmap != null) {
+                callback.onThumbnail(path, bitmap);
+            }
+        });
+    }
+
+    private File diskFileFor(String path) {
+        // O nome do arquivo de gravação já é único dentro do diretório de mídia
+        String key = new File(path).getName() + "_" + size.getWidth() + "x" + size.getHeight();
+        return new File(diskDir, key + ".jpg");
+    }
+
+    public void release() {
+        released = true;
+        diskExecutor.shutdownNow();
+        extractExecutor.shutdownNow();
+        memoryCache.evictAll();
+        synchronized (this) {
+            wanted.clear();
+            inFlight.clear();
+        }
+        missingListener = null;
+    }
+}
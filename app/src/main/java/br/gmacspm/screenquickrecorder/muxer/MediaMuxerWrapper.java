@@ -13,8 +13,15 @@ import java.util.Locale;
 
 import android.util.Log;
 
+import br.gmacspm.screenquickrecorder.library.RecordingEntry;
+import br.gmacspm.screenquickrecorder.streaming.LiveStreamSink;
+
 public class MediaMuxerWrapper {
 
+    public interface OnFinalizedListener {
+        void onFinalized(RecordingEntry entry);
+    }
+
     private static final String TAG = "MediaMuxerWrapper";
 
     private final MediaMuxer mediaMuxer;
@@ -22,8 +29,21 @@ public class MediaMuxerWrapper {
     private int trackCount = 0;
     private final int EXPECTED_TRACKS = 2; // Vídeo e Áudio
 
+    // Metadados coletados durante a gravação para o índice da biblioteca
+    private final String outputPath;
+    private final long createdAt = System.currentTimeMillis();
+    private int videoWidth = 0;
+    private int videoHeight = 0;
+    private String videoMime;
+    private String audioMime;
+    private long firstPtsUs = -1;
+    private long lastPtsUs = -1;
+    private OnFinalizedListener finalizedListener;
+    private LiveStreamSink liveStreamSink;
+
     public MediaMuxerWrapper(String baseDir) throws IOException {
         String fullPath = getOutputFilePath(baseDir);
+        outputPath = fullPath;
         mediaMuxer = new MediaMuxer(fullPath, MediaMuxer.OutputFormat.MUXER_OUTPUT_MPEG_4);
         Log.d(TAG, "MediaMuxerWrapper criado. Arquivo de saída: " + fullPath);
     }
@@ -38,12 +58,31 @@ public class MediaMuxerWrapper {
         return baseDir + File.separator + fileName;
     }
 
+    public void setOnFinalizedListener(OnFinalizedListener listener) {
+        this.finalizedListener = listener;
+    }
+
+    public synchronized void setLiveStreamSink(LiveStreamSink sink) {
+        this.liveStreamSink = sink;
+    }
+
     public synchronized int addTrack(MediaFormat format) {
         if (isMuxerStarted) {
             return -1;
         }
         int trackIndex = mediaMuxer.addTrack(format);
         trackCount++;
+        if (liveStreamSink != null) {
+            liveStreamSink.addTrack(trackIndex, format);
+        }
+        String mime = format.getString(MediaFormat.KEY_MIME);
+        if (mime != null && mime.startsWith("video/")) {
+            videoMime = mime;
+            videoWidth = format.getInteger(MediaFormat.KEY_WIDTH);
+            videoHeight = format.getInteger(MediaFormat.KEY_HEIGHT);
+        } else if (mime != null && mime.startsWith("audio/")) {
+            audioMime = mime;
+        }
         Log.i(TAG, "Trilha adicionada com índice: " + trackIndex);
         if (trackCount == EXPECTED_TRACKS) {
             mediaMuxer.start();
@@ -54,6 +93,10 @@ public class MediaMuxerWrapper {
     }
 
     public synchronized void writeSampleData(int trackIndex, ByteBuffer encodedData, MediaCodec.BufferInfo bufferInfo) {
+        // A transmissão não espera as duas trilhas nem descarta o codec config como o arquivo
+        if (liveStreamSink != null && trackIndex >= 0) {
+            liveStreamSink.writeSampleData(trackIndex, encodedData, bufferInfo);
+        }
         if (!isMuxerStarted) {
             return;
         }
@@ -67,14 +110,22 @@ public class MediaMuxerWrapper {
             encodedData.position(bufferInfo.offset);
             encodedData.limit(bufferInfo.offset + bufferInfo.size);
             mediaMuxer.writeSampleData(trackIndex, encodedData, bufferInfo);
+            if (firstPtsUs < 0 || bufferInfo.presentationTimeUs < firstPtsUs) {
+                firstPtsUs = bufferInfo.presentationTimeUs;
+            }
+            if (bufferInfo.presentationTimeUs > lastPtsUs) {
+                lastPtsUs = bufferInfo.presentationTimeUs;
+            }
         }
     }
 
     public synchronized void release() {
         if (mediaMuxer != null) {
+            boolean finalized = false;
             try {
                 if (isMuxerStarted) {
                     mediaMuxer.stop();
+                    finalized = true;
                     Log.i(TAG, "MediaMuxer parado com sucesso.");
                 }
             } catch (Exception e) {
@@ -84,6 +135,15 @@ public class MediaMuxerWrapper {
                 isMuxerStarted = false;
                 Log.i(TAG, "MediaMuxer liberado.");
             }
+            if (finalized && finalizedListener != null) {
+                finalizedListener.onFinalized(buildEntry());
+            }
         }
     }
+
+    private RecordingEntry buildEntry() {
+        long durationMs = firstPtsUs >= 0 ? (lastPtsUs - firstPtsUs) / 1000 : 0;
+        return new RecordingEntry(outputPath, durationMs, videoWidth, videoHeight,
+                new File(outputPath).length(), videoMime, audioMime, createdAt);
+    }
 }
\ No newline at end of file
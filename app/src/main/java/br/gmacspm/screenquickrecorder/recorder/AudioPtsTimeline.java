@@ -0,0 +1,74 @@
+package br.gmacspm.screenquickrecorder.recorder;
+
+/**
+ * PTS da trilha de áudio com o gate de silêncio. Tudo fica no relógio da entrada do encoder
+ * (System.nanoTime): o silêncio continua a partir do último quadro escrito e cobre também as
+ * amostras que o encoder recebeu antes do gate mas ainda não devolveu. Esses quadros retidos
+ * saem depois, já cobertos, e são descartados; eram silêncio de qualquer forma, porque o gate
+ * só abre após o hold.
+ */
+class AudioPtsTimeline {
+
+    private final int sampleRate;
+    private final int frameSize;
+    private long lastInputEndUs = -1;
+    private long lastWrittenPtsUs = -1;
+    private long gateBasePtsUs;
+    private long gateFrames;
+    private long pendingSilentSamples;
+
+    AudioPtsTimeline(int sampleRate, int frameSize) {
+        this.sampleRate = sampleRate;
+        this.frameSize = frameSize;
+    }
+
+    void onInputQueued(long ptsUs, int pcmFrames) {
+        lastInputEndUs = ptsUs + pcmFrames * 1_000_000L / sampleRate;
+    }
+
+    /** Retorna se o quadro do encoder deve ser escrito; falso se o silêncio já cobriu esse trecho. */
+    boolean acceptEncoded(long ptsUs) {
+        if (ptsUs <= lastWrittenPtsUs) {
+            return false;
+        }
+        lastWrittenPtsUs = ptsUs;
+        return true;
+    }
+
+    boolean canOpenGate() {
+        return lastWrittenPtsUs >= 0;
+    }
+
+    void openGate() {
+        gateBasePtsUs = lastWrittenPtsUs + frameSize * 1_000_000L / sampleRate;
+        gateFrames = 0;
+        // O que já está dentro do encoder também vira silêncio, sem buraco antes do gate;
+        // arredondado porque os PTS em microssegundos já foram truncados
+        pendingSilentSamples = Math.max(0,
+                ((lastInputEndUs - gateBasePtsUs) * sampleRate + 500_000) / 1_000_000);
+    }
+
+    void addSilentSamples(int pcmFrames) {
+        pendingSilentSamples += pcmFrames;
+    }
+
+    /**
+     * PTS do próximo quadro de silêncio, ou -1 se ainda não há amostras para um quadro inteiro.
+     * Fica sempre antes de {@code nowUs}, então a primeira entrada real após o gate, carimbada
+     * com System.nanoTime(), vem depois do último quadro de silêncio.
+     */
+    long pollSilentPts(long nowUs) {
+        if (pendingSilentSamples < frameSize) {
+            return -1;
+        }
+        // Calculado a partir do início do gate para não acumular erro de arredondamento
+        long ptsUs = gateBasePtsUs + gateFrames * frameSize * 1_000_000L / sampleRate;
+        if (ptsUs >= nowUs) {
+            return -1;
+        }
+        pendingSilentSamples -= frameSize;
+        gateFrames++;
+        lastWrittenPtsUs = ptsUs;
+        return ptsUs;
+    }
+}
@@ -1,20 +1,37 @@
 package br.gmacspm.screenquickrecorder.recorder;
 
+import android.content.Context;
 import android.media.AudioAttributes;
 import android.media.AudioFormat;
+import android.media.AudioManager;
 import android.media.AudioPlaybackCaptureConfiguration;
 import android.media.AudioRecord;
 import android.media.MediaCodec;
 import android.media.MediaCodecInfo;
+import android.media.MediaCodecList;
 import android.media.MediaFormat;
 import android.media.projection.MediaProjection;
+import android.os.Debug;
+import android.util.Log;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.util.Locale;
 
 import br.gmacspm.screenquickrecorder.muxer.MediaMuxerWrapper;
 
 public class InternalAudioRecorder {
+    private static final String TAG = "InternalAudioRecorder";
+    private static final int CHANNEL_COUNT = 2;
+    private static final int BYTES_PER_FRAME = CHANNEL_COUNT * 2; // PCM 16 bits
+    private static final int FALLBACK_SAMPLE_RATE = 44100;
+    private static final int FALLBACK_FRAMES_PER_BUFFER = 256;
+    private static final int AAC_FRAME_SIZE = 1024;
+    public static final long DEFAULT_SILENCE_HOLD_MS = 2000;
+    private static final int SILENCE_RMS_THRESHOLD = 8;
+    // Silêncio mínimo na entrada para a saída do encoder já ser um quadro de silêncio estável
+    private static final long SILENT_FRAME_WARMUP_MS = 500;
+
     private AudioRecord audioRecord;
     private boolean isCapturing = false;
     private Thread captureThread;
@@ -22,9 +39,54 @@ public class InternalAudioRecorder {
     private MediaCodec encoder;
     private int audioTrackIndex = -1;
 
-    public InternalAudioRecorder(MediaProjection mediaProjection, MediaMuxerWrapper muxer) {
+    // Captura sempre na taxa nativa do mixer para o framework não reamostrar cada buffer
+    private final int captureSampleRate;
+    private final int encodeSampleRate;
+    // Encoder que o MediaCodecList aprovou para a taxa escolhida; nulo se nenhum se declarou
+    private final String aacEncoderName;
+    private final int readSizeBytes;
+
+    // Gate de silêncio: com o gate aberto o encoder é pulado e um quadro AAC de silêncio,
+    // copiado da própria saída do encoder, é repetido com PTS contínuo (ver AudioPtsTimeline)
+    private long silenceHoldMs = DEFAULT_SILENCE_HOLD_MS;
+    private SilenceGate silenceGate;
+    private byte[] silentFrame;
+    private ByteBuffer silentFrameBuffer;
+    private final MediaCodec.BufferInfo silentInfo = new MediaCodec.BufferInfo();
+    private boolean gated = false;
+    private final AudioPtsTimeline timeline;
+
+    // Estatísticas da sessão, em quadros de PCM na taxa do encoder
+    private long totalPcmFrames = 0;
+    private long gatedPcmFrames = 0;
+    private long encodedBuffers = 0;
+    private long drainCpuNanos = 0;
+    private long skippedBuffers = 0;
+
+    public InternalAudioRecorder(Context context, MediaProjection mediaProjection, MediaMuxerWrapper muxer) {
         this.muxer = muxer;
 
+        AudioManager audioManager = (AudioManager) context.getSystemService(Context.AUDIO_SERVICE);
+        captureSampleRate = readIntProperty(audioManager,
+                AudioManager.PROPERTY_OUTPUT_SAMPLE_RATE, FALLBACK_SAMPLE_RATE);
+        int framesPerBurst = readIntProperty(audioManager,
+                AudioManager.PROPERTY_OUTPUT_FRAMES_PER_BUFFER, FALLBACK_FRAMES_PER_BUFFER);
+        String encoderName = findAacEncoder(captureSampleRate);
+        if (encoderName != null) {
+            encodeSampleRate = captureSampleRate;
+        } else {
+            encodeSampleRate = FALLBACK_SAMPLE_RATE;
+            encoderName = findAacEncoder(FALLBACK_SAMPLE_RATE);
+        }
+        aacEncoderName = encoderName;
+        timeline = new AudioPtsTimeline(encodeSampleRate, AAC_FRAME_SIZE);
+        Log.i(TAG, "Taxa nativa: " + captureSampleRate + " Hz, burst: " + framesPerBurst
+                + " quadros, encoder: " + aacEncoderName + " a " + encodeSampleRate + " Hz");
+
+        // Leituras em múltiplos do burst nativo, próximas de um quadro AAC
+        int burstBytes = framesPerBurst * BYTES_PER_FRAME;
+        readSizeBytes = Math.max(1, AAC_FRAME_SIZE / framesPerBurst) * burstBytes;
+
         AudioPlaybackCaptureConfiguration config =
                 new AudioPlaybackCaptureConfiguration.Builder(mediaProjection)
                         .addMatchingUsage(AudioAttributes.USAGE_MEDIA)
@@ -33,16 +95,18 @@ public class InternalAudioRecorder {
                         .build();
 
         AudioFormat audioFormat = new AudioFormat.Builder()
-                .setSampleRate(44100)
+                .setSampleRate(captureSampleRate)
                 .setEncoding(AudioFormat.ENCODING_PCM_16BIT)
                 .setChannelMask(AudioFormat.CHANNEL_IN_STEREO)
                 .build();
 
-        int bufferSize = AudioRecord.getMinBufferSize(
-                44100,
+        int minBufferSize = AudioRecord.getMinBufferSize(
+                captureSampleRate,
                 AudioFormat.CHANNEL_IN_STEREO,
                 AudioFormat.ENCODING_PCM_16BIT
         );
+        int bufferSize = Math.max(minBufferSize, 2 * readSizeBytes);
+        bufferSize = ((bufferSize + burstBytes - 1) / burstBytes) * burstBytes;
 
         audioRecord = new AudioRecord.Builder()
                 .setAudioFormat(audioFormat)
@@ -51,54 +115,162 @@ public class InternalAudioRecorder {
                 .build();
     }
 
+    private static int readIntProperty(AudioManager audioManager, String key, int fallback) {
+        String value = audioManager != null ? audioManager.getProperty(key) : null;
+        if (value != null) {
+            try {
+                int parsed = Integer.parseInt(value);
+                if (parsed > 0) {
+                    return parsed;
+                }
+            } catch (NumberFormatException ignored) {
+            }
+        }
+        return fallback;
+    }
+
+    private static MediaFormat createAacFormat(int sampleRate) {
+        MediaFormat format = MediaFormat.createAudioFormat(
+                MediaFormat.MIMETYPE_AUDIO_AAC,
+                sampleRate,
+                CHANNEL_COUNT
+        );
+        format.setInteger(MediaFormat.KEY_AAC_PROFILE,
+                MediaCodecInfo.CodecProfileLevel.AACObjectLC);
+        format.setInteger(MediaFormat.KEY_BIT_RATE, 128000);
+        return format;
+    }
+
+    /** Nome do encoder AAC que aceita a taxa, ou nulo; o mesmo nome é usado para criá-lo. */
+    private static String findAacEncoder(int sampleRate) {
+        MediaCodecList codecList = new MediaCodecList(MediaCodecList.REGULAR_CODECS);
+        return codecList.findEncoderForFormat(createAacFormat(sampleRate));
+    }
+
+    public void setSilenceHoldMs(long holdMs) {
+        this.silenceHoldMs = holdMs;
+    }
+
     public void startInternalAudioCapture() {
         audioRecord.startRecording();
         isCapturing = true;
+        silenceGate = new SilenceGate(encodeSampleRate, CHANNEL_COUNT, SILENCE_RMS_THRESHOLD, silenceHoldMs);
         captureThread = new Thread(() -> {
-            int sampleRate = 44100;
-            int channelCount = 2;
-
-            MediaFormat format = MediaFormat.createAudioFormat(
-                    MediaFormat.MIMETYPE_AUDIO_AAC,
-                    sampleRate,
-                    channelCount
-            );
-            format.setInteger(MediaFormat.KEY_AAC_PROFILE,
-                    MediaCodecInfo.CodecProfileLevel.AACObjectLC);
-            format.setInteger(MediaFormat.KEY_BIT_RATE, 128000);
-            format.setInteger(MediaFormat.KEY_MAX_INPUT_SIZE, 16384);
+            PcmResampler resampler = captureSampleRate != encodeSampleRate
+                    ? new PcmResampler(captureSampleRate, encodeSampleRate, CHANNEL_COUNT) : null;
+            int maxInputSize = readSizeBytes;
+            if (resampler != null) {
+                maxInputSize = (int) Math.ceil((double) readSizeBytes * encodeSampleRate / captureSampleRate)
+                        + 2 * BYTES_PER_FRAME;
+            }
+
+            MediaFormat format = createAacFormat(encodeSampleRate);
+            format.setInteger(MediaFormat.KEY_MAX_INPUT_SIZE, Math.max(16384, maxInputSize));
 
             try {
-                encoder = MediaCodec.createEncoderByType(MediaFormat.MIMETYPE_AUDIO_AAC);
+                // Pelo tipo o framework poderia escolher outro encoder, que não aceite esta taxa
+                encoder = aacEncoderName != null
+                        ? MediaCodec.createByCodecName(aacEncoderName)
+                        : MediaCodec.createEncoderByType(MediaFormat.MIMETYPE_AUDIO_AAC);
             } catch (IOException e) {
                 throw new RuntimeException(e);
             }
             encoder.configure(format, null, null, MediaCodec.CONFIGURE_FLAG_ENCODE);
             encoder.start();
 
-            byte[] buffer = new byte[4096];
+            byte[] buffer = new byte[readSizeBytes];
 
             while (isCapturing) {
                 int read = audioRecord.read(buffer, 0, buffer.length);
-                if (read > 0) {
-                    drainEncoder(encoder, buffer);
+                if (read <= 0) {
+                    continue;
                 }
+                byte[] pcm = buffer;
+                int length = read;
+                if (resampler != null) {
+                    length = resampler.process(buffer, read);
+                    pcm = resampler.getOutput();
+                }
+                encodeOrGate(pcm, length);
             }
 
             encoder.stop();
             encoder.release();
             audioRecord.stop();
+            Log.i(TAG, String.format(Locale.US,
+                    "Silêncio: %.1f%% da sessão sem encoder, ~%d ms da thread de captura poupados em chamadas ao MediaCodec",
+                    getGatedFraction() * 100, getCaptureThreadCpuSavedMs()));
         });
         captureThread.start();
     }
 
-    void drainEncoder(MediaCodec audioCodec, byte[] pcm) {
+    private void encodeOrGate(byte[] pcm, int length) {
+        int frames = length / BYTES_PER_FRAME;
+        totalPcmFrames += frames;
+        boolean silent = silenceGate.update(pcm, length);
+
+        // Sem quadro de silêncio capturado ainda não há o que repetir; segue codificando
+        if (silent && silentFrame != null && audioTrackIndex >= 0 && timeline.canOpenGate()) {
+            if (!gated) {
+                gated = true;
+                timeline.openGate();
+                Log.d(TAG, "Gate de silêncio aberto.");
+            }
+            gatedPcmFrames += frames;
+            skippedBuffers++;
+            writeSilentFrames(frames);
+            return;
+        }
+        if (gated) {
+            // O encoder parou em silêncio, então a retomada é contínua para o decodificador.
+            // A próxima entrada volta a ser carimbada com System.nanoTime(); antes disso sai o
+            // silêncio que ficou pendente por estar à frente do relógio
+            writeSilentFrames(0);
+            gated = false;
+            Log.d(TAG, "Gate de silêncio fechado.");
+        }
+
+        long cpuStart = Debug.threadCpuTimeNanos();
+        drainEncoder(encoder, pcm, length);
+        drainCpuNanos += Debug.threadCpuTimeNanos() - cpuStart;
+        encodedBuffers++;
+    }
+
+    private void writeSilentFrames(int pcmFrames) {
+        timeline.addSilentSamples(pcmFrames);
+        long nowUs = System.nanoTime() / 1000;
+        long ptsUs;
+        while ((ptsUs = timeline.pollSilentPts(nowUs)) >= 0) {
+            silentInfo.set(0, silentFrame.length, ptsUs, 0);
+            muxer.writeSampleData(audioTrackIndex, silentFrameBuffer, silentInfo);
+        }
+    }
+
+    public double getGatedFraction() {
+        return totalPcmFrames > 0 ? (double) gatedPcmFrames / totalPcmFrames : 0;
+    }
+
+    /**
+     * Tempo de CPU da thread de captura que as chamadas ao MediaCodec (fila, cópia e drenagem)
+     * teriam gasto nos buffers pulados pelo gate. Não inclui a codificação em si, que roda no
+     * processo de mídia.
+     */
+    public long getCaptureThreadCpuSavedMs() {
+        if (encodedBuffers == 0) {
+            return 0;
+        }
+        return drainCpuNanos / encodedBuffers * skippedBuffers / 1_000_000;
+    }
+
+    void drainEncoder(MediaCodec audioCodec, byte[] pcm, int length) {
         int inIndex = audioCodec.dequeueInputBuffer(10000);
         if (inIndex >= 0) {
             ByteBuffer buffer = audioCodec.getInputBuffer(inIndex);
             buffer.clear();
-            buffer.put(pcm);
-            audioCodec.queueInputBuffer(inIndex, 0, pcm.length, System.nanoTime() / 1000, 0);
+            buffer.put(pcm, 0, length);
+            long ptsUs = System.nanoTime() / 1000;
+            audioCodec.queueInputBuffer(inIndex, 0, length, ptsUs, 0);
+            timeline.onInputQueued(ptsUs, length / BYTES_PER_FRAME);
         }
 
         MediaCodec.BufferInfo info = new MediaCodec.BufferInfo();
@@ -110,7 +282,14 @@ public class InternalAudioRecorder {
             }
 
             ByteBuffer encodedData = audioCodec.getOutputBuffer(outIndex);
-            if (encodedData != null) {
+            boolean codecConfig = (info.flags & MediaCodec.BUFFER_FLAG_CODEC_CONFIG) != 0;
+            if (encodedData != null && (codecConfig || info.size == 0)) {
+                muxer.writeSampleData(audioTrackIndex, encodedData, info);
+            } else if (encodedData != null && timeline.acceptEncoded(info.presentationTimeUs)) {
+                // Quadros retidos de antes do gate já foram cobertos pelo silêncio e ficam de fora
+                if (silenceGate.getSilentRunMs() >= SILENT_FRAME_WARMUP_MS) {
+                    cacheSilentFrame(encodedData, info);
+                }
                 muxer.writeSampleData(audioTrackIndex, encodedData, info);
             }
 
@@ -118,6 +297,17 @@ public class InternalAudioRecorder {
         }
     }
 
+    private void cacheSilentFrame(ByteBuffer encodedData, MediaCodec.BufferInfo info) {
+        if (silentFrame == null || silentFrame.length != info.size) {
+            silentFrame = new byte[info.size];
+            silentFrameBuffer = ByteBuffer.wrap(silentFrame);
+        }
+        ByteBuffer source = encodedData.duplicate();
+        source.limit(info.offset + info.size);
+        source.position(info.offset);
+        source.get(silentFrame);
+    }
+
     public void stopInternalAudioCapture() {
         isCapturing = false;
 
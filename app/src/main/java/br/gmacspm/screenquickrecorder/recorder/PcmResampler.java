@@ -0,0 +1,70 @@
+package br.gmacspm.screenquickrecorder.recorder;
+
+/**
+ * Reamostragem linear de PCM 16 bits intercalado. Usado apenas quando o encoder AAC não aceita
+ * a taxa nativa do aparelho; mantém o último quadro entre chamadas para não gerar cliques
+ * na emenda dos buffers.
+ */
+class PcmResampler {
+
+    private final int channels;
+    private final double step;
+    private final short[] previous;
+    private boolean hasPrevious = false;
+    // Posição do próximo quadro de saída, em quadros de entrada; -1 aponta para o quadro anterior
+    private double position = 0;
+    private byte[] output = new byte[0];
+
+    PcmResampler(int inputRate, int outputRate, int channels) {
+        this.channels = channels;
+        this.step = (double) inputRate / outputRate;
+        this.previous = new short[channels];
+    }
+
+    byte[] getOutput() {
+        return output;
+    }
+
+    /** Reamostra {@code length} bytes de {@code input} e retorna quantos bytes foram escritos em {@link #getOutput()}. */
+    int process(byte[] input, int length) {
+        int frameBytes = channels * 2;
+        int inFrames = length / frameBytes;
+        if (inFrames == 0) {
+            return 0;
+        }
+        if (!hasPrevious) {
+            position = 0;
+        }
+
+        int maxOutFrames = (int) Math.ceil((inFrames + 1) / step) + 1;
+        if (output.length < maxOutFrames * frameBytes) {
+            output = new byte[maxOutFrames * frameBytes];
+        }
+
+        int out = 0;
+        while (position + 1 < inFrames) {
+            int index = (int) Math.floor(position);
+            double frac = position - index;
+            for (int c = 0; c < channels; c++) {
+                int s0 = index < 0 ? previous[c] : sample(input, index * frameBytes + c * 2);
+                int s1 = sample(input, (index + 1) * frameBytes + c * 2);
+                int value = (int) Math.round(s0 + (s1 - s0) * frac);
+                output[out++] = (byte) value;
+                output[out++] = (byte) (value >> 8);
+            }
+            position += step;
+        }
+
+        int last = (inFrames - 1) * frameBytes;
+        for (int c = 0; c < channels; c++) {
+            previous[c] = (short) sample(input, last + c * 2);
+        }
+        hasPrevious = true;
+        position -= inFrames;
+        return out;
+    }
+
+    private static int sample(byte[] data, int offset) {
+        return (short) ((data[offset] & 0xFF) | (data[offset + 1] << 8));
+    }
+}
@@ -0,0 +1,55 @@
+package br.gmacspm.screenquickrecorder.recorder;
+
+/**
+ * Detector de silêncio por energia de cada buffer de PCM 16 bits. Depois de {@code holdMs}
+ * de silêncio contínuo o gate abre e o encoder pode ser pulado; qualquer buffer com energia
+ * acima do limiar fecha o gate na hora.
+ */
+class SilenceGate {
+
+    private final int channels;
+    private final int sampleRate;
+    private final long threshold;
+    private final long holdFrames;
+    private long silentRunFrames = 0;
+
+    /**
+     * @param rmsThreshold nível RMS, em amostras de 16 bits, abaixo do qual o buffer é silêncio
+     */
+    SilenceGate(int sampleRate, int channels, int rmsThreshold, long holdMs) {
+        this.sampleRate = sampleRate;
+        this.channels = channels;
+        this.threshold = (long) rmsThreshold * rmsThreshold;
+        this.holdFrames = holdMs * sampleRate / 1000;
+    }
+
+    /** Analisa o buffer e retorna se o gate está aberto (silêncio por mais que o hold). */
+    boolean update(byte[] pcm, int length) {
+        int samples = length / 2;
+        int frames = samples / channels;
+        if (isSilent(pcm, samples)) {
+            silentRunFrames += frames;
+        } else {
+            silentRunFrames = 0;
+        }
+        return silentRunFrames >= holdFrames;
+    }
+
+    long getSilentRunMs() {
+        return silentRunFrames * 1000 / sampleRate;
+    }
+
+    private boolean isSilent(byte[] pcm, int samples) {
+        // Soma dos quadrados com saída antecipada: áudio real sai nas primeiras amostras
+        long budget = threshold * samples;
+        long energy = 0;
+        for (int i = 0, offset = 0; i < samples; i++, offset += 2) {
+            int sample = (short) ((pcm[offset] & 0xFF) | (pcm[offset + 1] << 8));
+            energy += (long) sample * sample;
+            if (energy > budget) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
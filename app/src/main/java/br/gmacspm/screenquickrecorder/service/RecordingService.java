@@ -16,6 +16,7 @@ import android.media.projection.MediaProjection;
 import android.media.projection.MediaProjectionManager;
 import android.os.IBinder;
 import android.util.DisplayMetrics;
+import android.util.Log;
 import android.view.WindowManager;
 import android.widget.Toast;
 
@@ -25,9 +26,11 @@ import androidx.core.app.NotificationCompat;
 import java.io.File;
 import java.io.IOException;
 
+import br.gmacspm.screenquickrecorder.library.RecordingIndex;
 import br.gmacspm.screenquickrecorder.muxer.MediaMuxerWrapper;
 import br.gmacspm.screenquickrecorder.recorder.InternalAudioRecorder;
 import br.gmacspm.screenquickrecorder.recorder.ScreenRecorder;
+import br.gmacspm.screenquickrecorder.streaming.LiveStreamSink;
 
 public class RecordingService extends Service {
     private static final String TAG = "RecordingService";
@@ -35,6 +38,10 @@ public class RecordingService extends Service {
     public static final String EXTRA_RESULT_INTENT = "extra_result_intent";
     private static final int NOTIF_ID = 1;
     private static final String CHANNEL_ID = "screen_rec_channel";
+    // http://127.0.0.1:8080/<token> no aparelho, ou via "adb forward tcp:8080 tcp:8080"
+    private static final int LIVE_STREAM_PORT = 8080;
+    private static final String PREFS_NAME = "recording_settings";
+    private static final String PREF_LIVE_STREAM = "live_stream_enabled";
 
     private MediaProjectionManager projectionManager;
     private MediaProjection mediaProjection;
@@ -48,12 +55,24 @@ public class RecordingService extends Service {
     private ScreenRecorder screenRecorder;
     private InternalAudioRecorder audioRecorder;
     private MediaMuxerWrapper muxerWrapper;
+    private LiveStreamSink liveStreamSink;
     private BroadcastReceiver screenReceiver;
 
     public static boolean isRecording() {
         return recording;
     }
 
+    /** A transmissão ao vivo só sobe quando o usuário a ativa explicitamente. */
+    public static boolean isLiveStreamEnabled(Context context) {
+        return context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE)
+                .getBoolean(PREF_LIVE_STREAM, false);
+    }
+
+    public static void setLiveStreamEnabled(Context context, boolean enabled) {
+        context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE)
+                .edit().putBoolean(PREF_LIVE_STREAM, enabled).apply();
+    }
+
     @Override
     public void onCreate() {
         super.onCreate();
@@ -84,6 +103,23 @@ public class RecordingService extends Service {
         startForeground(NOTIF_ID, buildNotification("Gravando tela..."));
     }
 
+    private void startLiveStream() {
+        liveStreamSink = new LiveStreamSink(LIVE_STREAM_PORT);
+        try {
+            liveStreamSink.start();
+            muxerWrapper.setLiveStreamSink(liveStreamSink);
+            Log.i(TAG, "Transmissão ao vivo em " + liveStreamSink.getUrl());
+            NotificationManager nm = getSystemService(NotificationManager.class);
+            if (nm != null) {
+                nm.notify(NOTIF_ID, buildNotification("Transmitindo em " + liveStreamSink.getUrl()));
+            }
+        } catch (IOException e) {
+            Log.w(TAG, "Transmissão ao vivo indisponível; gravando apenas em arquivo.", e);
+            liveStreamSink.release();
+            liveStreamSink = null;
+        }
+    }
+
     private void onScreenOff() {
         stopRecording();
     }
@@ -92,13 +128,20 @@ public class RecordingService extends Service {
         if (mediaProjection == null) return;
 
         try {
-            muxerWrapper = new MediaMuxerWrapper(getExternalMediaPath());
+            muxerWrapper = new MediaMuxerWrapper(getExternalMediaPath(this));
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
+        // Indexa o arquivo assim que ele é finalizado, sem varrer o diretório depois
+        RecordingIndex index = RecordingIndex.getInstance(this);
+        muxerWrapper.setOnFinalizedListener(index::insertAsync);
+
+        if (isLiveStreamEnabled(this)) {
+            startLiveStream();
+        }
 
         screenRecorder = new ScreenRecorder(muxerWrapper, width, height);
-        audioRecorder = new InternalAudioRecorder(mediaProjection, muxerWrapper);
+        audioRecorder = new InternalAudioRecorder(this, mediaProjection, muxerWrapper);
 
         screenRecorder.start();
         audioRecorder.startInternalAudioCapture();
@@ -134,6 +177,10 @@ public class RecordingService extends Service {
         if (muxerWrapper != null) {
             muxerWrapper.release();
         }
+        if (liveStreamSink != null) {
+            liveStreamSink.release();
+            liveStreamSink = null;
+        }
 
         recording = false;
         stopForeground(true);
@@ -168,8 +215,8 @@ public class RecordingService extends Service {
     }
 
 
-    private String getExternalMediaPath() {
-        File[] mediaDirs = getExternalMediaDirs();
+    public static String getExternalMediaPath(Context context) {
+        File[] mediaDirs = context.getExternalMediaDirs();
         File mediaDir = (mediaDirs != null && mediaDirs.length > 0) ? mediaDirs[0] : null;
 
         if (mediaDir != null) {
@@ -178,7 +225,7 @@ public class RecordingService extends Service {
             }
             return mediaDir.getAbsolutePath();
         } else {
-            return getFilesDir().getAbsolutePath();
+            return context.getFilesDir().getAbsolutePath();
         }
     }
 
@@ -0,0 +1,52 @@
+package br.gmacspm.screenquickrecorder.streaming;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+
+/**
+ * Pool de {@link ByteBuffer}s diretos agrupados por capacidade em potências de dois,
+ * para que o envio contínuo de segmentos não gere lixo a cada quadro.
+ */
+class BufferPool {
+
+    private static final int MIN_SHIFT = 12; // 4 KB
+    private static final int MAX_SHIFT = 22; // 4 MB
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private final ArrayDeque<ByteBuffer>[] buckets = new ArrayDeque[MAX_SHIFT - MIN_SHIFT + 1];
+    private final int maxPerBucket;
+
+    BufferPool(int maxPerBucket) {
+        this.maxPerBucket = maxPerBucket;
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = new ArrayDeque<>();
+        }
+    }
+
+    synchronized ByteBuffer acquire(int minCapacity) {
+        int bucket = bucketFor(minCapacity);
+        if (bucket < 0) {
+            return ByteBuffer.allocateDirect(minCapacity);
+        }
+        ByteBuffer buffer = buckets[bucket].pollFirst();
+        if (buffer == null) {
+            buffer = ByteBuffer.allocateDirect(1 << (bucket + MIN_SHIFT));
+        }
+        buffer.clear();
+        return buffer;
+    }
+
+    synchronized void release(ByteBuffer buffer) {
+        int capacity = buffer.capacity();
+        int bucket = bucketFor(capacity);
+        // Só volta ao pool o que saiu dele (capacidade exata do bucket)
+        if (bucket >= 0 && capacity == 1 << (bucket + MIN_SHIFT) && buckets[bucket].size() < maxPerBucket) {
+            buckets[bucket].addFirst(buffer);
+        }
+    }
+
+    private static int bucketFor(int capacity) {
+        int shift = Math.max(MIN_SHIFT, 32 - Integer.numberOfLeadingZeros(Math.max(1, capacity - 1)));
+        return shift > MAX_SHIFT ? -1 : shift - MIN_SHIFT;
+    }
+}
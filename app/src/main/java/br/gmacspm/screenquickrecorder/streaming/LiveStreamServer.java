@@ -0,0 +1,374 @@
+package br.gmacspm.screenquickrecorder.streaming;
+
+import android.util.Log;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Servidor HTTP local que entrega o MPEG-TS do {@link TsPacketizer} para quantos clientes
+ * estiverem conectados. Só é atendido quem pede {@code GET /<token>} com o token da sessão;
+ * sem ele, qualquer app com INTERNET poderia ler a tela pelo loopback sem passar pelo
+ * consentimento do MediaProjection.
+ *
+ * Toda a E/S acontece em uma única thread com NIO não bloqueante; as threads dos encoders
+ * apenas copiam o segmento para um buffer do pool e seguem.
+ *
+ * Cada cliente tem um limite de bytes pendentes. Quando um cliente lento passa desse limite,
+ * o que estava na fila é descartado e ele só volta a receber dados no próximo quadro-chave,
+ * ou seja, perde GOPs inteiros em vez de segurar os encoders.
+ */
+public class LiveStreamServer implements TsPacketizer.PacketSink, Runnable {
+
+    private static final String TAG = "LiveStreamServer";
+    private static final int MAX_REQUEST_SIZE = 8 * 1024;
+    private static final int POOLED_BUFFERS_PER_SIZE = 32;
+    private static final byte[] RESPONSE_HEADER = ("HTTP/1.1 200 OK\r\n"
+            + "Content-Type: video/mp2t\r\n"
+            + "Cache-Control: no-cache\r\n"
+            + "Connection: close\r\n\r\n").getBytes(StandardCharsets.US_ASCII);
+
+    private final int port;
+    private final int maxClientBacklog;
+    private final byte[] expectedRequestLine;
+    private final BufferPool pool = new BufferPool(POOLED_BUFFERS_PER_SIZE);
+    private final ConcurrentLinkedQueue<Segment> pending = new ConcurrentLinkedQueue<>();
+    private final List<Client> clients = new ArrayList<>();
+    private final AtomicLong droppedGops = new AtomicLong();
+
+    private Selector selector;
+    private ServerSocketChannel serverChannel;
+    private Thread ioThread;
+    private volatile boolean running = false;
+    // Clientes que já passaram pela verificação do token e recebem o stream
+    private volatile int streamingClients = 0;
+
+    public LiveStreamServer(int port, int maxClientBacklog, String token) {
+        this.port = port;
+        this.maxClientBacklog = maxClientBacklog;
+        this.expectedRequestLine = ("GET /" + token + " ").getBytes(StandardCharsets.US_ASCII);
+    }
+
+    public void start() throws IOException {
+        try {
+            selector = Selector.open();
+            serverChannel = ServerSocketChannel.open();
+            // Apenas loopback: acesso externo deve passar por "adb forward"
+            serverChannel.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+            serverChannel.configureBlocking(false);
+            serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+        } catch (IOException e) {
+            closeQuietly();
+            throw e;
+        }
+        running = true;
+        ioThread = new Thread(this, "LiveStreamServerThread");
+        ioThread.start();
+        Log.i(TAG, "Servidor de transmissão ouvindo na porta " + getLocalPort());
+    }
+
+    public int getLocalPort() {
+        return serverChannel != null ? serverChannel.socket().getLocalPort() : -1;
+    }
+
+    public boolean hasClients() {
+        return streamingClients > 0;
+    }
+
+    public long getDroppedGops() {
+        return droppedGops.get();
+    }
+
+    @Override
+    public void onPackets(byte[] data, int offset, int length, boolean keyFrame) {
+        // Sem clientes não há por que copiar nada
+        if (!running || streamingClients == 0) {
+            return;
+        }
+        ByteBuffer buffer = pool.acquire(length);
+        buffer.put(data, offset, length).flip();
+        pending.add(new Segment(buffer, pool, keyFrame));
+        selector.wakeup();
+    }
+
+    @Override
+    public void run() {
+        while (running) {
+            try {
+                selector.select();
+            } catch (IOException e) {
+                Log.e(TAG, "Erro no selector.", e);
+                break;
+            }
+            dispatchPending();
+
+            Iterator<SelectionKey> it = selector.selectedKeys().iterator();
+            while (it.hasNext()) {
+                SelectionKey key = it.next();
+                it.remove();
+                if (!key.isValid()) {
+                    continue;
+                }
+                if (key.isAcceptable()) {
+                    accept();
+                    continue;
+                }
+                Client client = (Client) key.attachment();
+                if (key.isReadable()) {
+                    client.read();
+                }
+                if (key.isValid() && key.isWritable()) {
+                    client.flush();
+                }
+            }
+        }
+        closeAll();
+    }
+
+    private void accept() {
+        try {
+            SocketChannel channel = serverChannel.accept();
+            if (channel == null) {
+                return;
+            }
+            channel.configureBlocking(false);
+            channel.socket().setTcpNoDelay(true);
+            Client client = new Client(channel);
+            client.key = channel.register(selector, SelectionKey.OP_READ, client);
+            clients.add(client);
+            Log.i(TAG, "Cliente conectado: " + channel.getRemoteAddress());
+        } catch (IOException e) {
+            Log.w(TAG, "Falha ao aceitar cliente.", e);
+        }
+    }
+
+    private void dispatchPending() {
+        Segment segment;
+        while ((segment = pending.poll()) != null) {
+            for (int i = clients.size() - 1; i >= 0; i--) {
+                clients.get(i).offer(segment);
+            }
+            segment.release();
+        }
+    }
+
+    public void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        selector.wakeup();
+        try {
+            ioThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        ioThread = null;
+        Log.i(TAG, "Servidor de transmissão parado. GOPs descartados: " + droppedGops.get());
+    }
+
+    private void closeAll() {
+        for (int i = clients.size() - 1; i >= 0; i--) {
+            clients.get(i).close();
+        }
+        Segment segment;
+        while ((segment = pending.poll()) != null) {
+            segment.release();
+        }
+        closeQuietly();
+    }
+
+    private void closeQuietly() {
+        try {
+            if (serverChannel != null) {
+                serverChannel.close();
+            }
+        } catch (IOException e) {
+            Log.w(TAG, "Erro ao fechar o canal do servidor.", e);
+        }
+        try {
+            if (selector != null) {
+                selector.close();
+            }
+        } catch (IOException e) {
+            Log.w(TAG, "Erro ao fechar o selector.", e);
+        }
+    }
+
+    /** Bloco de pacotes TS compartilhado entre clientes; a contagem é confinada à thread de E/S. */
+    private static class Segment {
+        final ByteBuffer data;
+        final BufferPool pool;
+        final boolean keyFrame;
+        private int refs = 1;
+
+        Segment(ByteBuffer data, BufferPool pool, boolean keyFrame) {
+            this.data = data;
+            this.pool = pool;
+            this.keyFrame = keyFrame;
+        }
+
+        void retain() {
+            refs++;
+        }
+
+        void release() {
+            if (--refs == 0 && pool != null) {
+                pool.release(data);
+            }
+        }
+    }
+
+    private class Client {
+        final SocketChannel channel;
+        SelectionKey key;
+        final ByteBuffer request = ByteBuffer.allocate(MAX_REQUEST_SIZE);
+        final ArrayDeque<Segment> queue = new ArrayDeque<>();
+        final ArrayDeque<ByteBuffer> views = new ArrayDeque<>();
+        boolean responded = false;
+        boolean waitingForKeyFrame = true;
+        long queuedBytes = 0;
+
+        Client(SocketChannel channel) {
+            this.channel = channel;
+        }
+
+        void read() {
+            try {
+                if (responded) {
+                    // Só interessa detectar a desconexão; o resto é descartado
+                    request.clear();
+                }
+                int read = channel.read(request);
+                if (read < 0) {
+                    close();
+                    return;
+                }
+                if (!responded && endsRequest()) {
+                    if (!isAuthorized()) {
+                        Log.w(TAG, "Pedido sem o token da sessão recusado.");
+                        close();
+                        return;
+                    }
+                    responded = true;
+                    streamingClients++;
+                    enqueue(new Segment(ByteBuffer.wrap(RESPONSE_HEADER), null, false));
+                } else if (!request.hasRemaining()) {
+                    close();
+                }
+            } catch (IOException e) {
+                close();
+            }
+        }
+
+        private boolean endsRequest() {
+            byte[] bytes = request.array();
+            for (int i = 3; i < request.position(); i++) {
+                if (bytes[i - 3] == '\r' && bytes[i - 2] == '\n' && bytes[i - 1] == '\r' && bytes[i] == '\n') {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /** Confere método e caminho da linha de pedido; a comparação não vaza o token por tempo. */
+        private boolean isAuthorized() {
+            int length = expectedRequestLine.length;
+            if (request.position() < length) {
+                return false;
+            }
+            byte[] received = new byte[length];
+            System.arraycopy(request.array(), 0, received, 0, length);
+            return MessageDigest.isEqual(received, expectedRequestLine);
+        }
+
+        void offer(Segment segment) {
+            if (!responded) {
+                return;
+            }
+            if (queuedBytes + segment.data.remaining() > maxClientBacklog) {
+                dropBacklog();
+                droppedGops.incrementAndGet();
+                waitingForKeyFrame = true;
+            }
+            if (waitingForKeyFrame) {
+                if (!segment.keyFrame) {
+                    return;
+                }
+                waitingForKeyFrame = false;
+            }
+            segment.retain();
+            enqueue(segment);
+        }
+
+        private void enqueue(Segment segment) {
+            ByteBuffer view = segment.data.duplicate();
+            queue.addLast(segment);
+            views.addLast(view);
+            queuedBytes += view.remaining();
+            key.interestOps(key.interestOps() | SelectionKey.OP_WRITE);
+        }
+
+        private void dropBacklog() {
+            // Um segmento já começado precisa ir inteiro para manter o alinhamento de 188 bytes
+            ByteBuffer head = views.peekFirst();
+            boolean keepHead = head != null && head.position() > 0;
+            while (queue.size() > (keepHead ? 1 : 0)) {
+                views.removeLast();
+                Segment dropped = queue.removeLast();
+                queuedBytes -= dropped.data.remaining();
+                dropped.release();
+            }
+        }
+
+        void flush() {
+            try {
+                while (!views.isEmpty()) {
+                    ByteBuffer view = views.peekFirst();
+                    int written = channel.write(view);
+                    queuedBytes -= written;
+                    if (view.hasRemaining()) {
+                        return;
+                    }
+                    views.removeFirst();
+                    queue.removeFirst().release();
+                }
+                key.interestOps(key.interestOps() & ~SelectionKey.OP_WRITE);
+            } catch (IOException e) {
+                close();
+            }
+        }
+
+        void close() {
+            while (!queue.isEmpty()) {
+                queue.removeFirst().release();
+            }
+            views.clear();
+            key.cancel();
+            try {
+                channel.close();
+            } catch (IOException ignored) {
+            }
+            clients.remove(this);
+            if (responded) {
+                responded = false;
+                streamingClients--;
+            }
+            Log.i(TAG, "Cliente desconectado.");
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package br.gmacspm.screenquickrecorder.streaming;
+
+import android.media.MediaCodec;
+import android.media.MediaCodecInfo;
+import android.media.MediaFormat;
+import android.util.Log;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.security.SecureRandom;
+
+/**
+ * Segunda saída ao lado do {@link br.gmacspm.screenquickrecorder.muxer.MediaMuxerWrapper}:
+ * recebe as mesmas trilhas e amostras dos encoders e as transmite ao vivo em MPEG-TS.
+ * Cada sessão gera um token aleatório que precisa estar no caminho do pedido HTTP.
+ */
+public class LiveStreamSink {
+
+    private static final String TAG = "LiveStreamSink";
+    // ~4 s a 8 Mbps; acima disso o cliente é considerado lento e perde GOPs
+    private static final int MAX_CLIENT_BACKLOG = 4 * 1024 * 1024;
+    private static final int TOKEN_BYTES = 16;
+
+    private final String token;
+    private final LiveStreamServer server;
+    private final TsPacketizer packetizer;
+    private int videoTrackIndex = -1;
+    private int audioTrackIndex = -1;
+    private byte[] sample = new byte[64 * 1024];
+
+    public LiveStreamSink(int port) {
+        token = newToken();
+        server = new LiveStreamServer(port, MAX_CLIENT_BACKLOG, token);
+        packetizer = new TsPacketizer(server);
+    }
+
+    public void start() throws IOException {
+        server.start();
+    }
+
+    /** Endereço da transmissão desta sessão, incluindo o token. */
+    public String getUrl() {
+        return "http://127.0.0.1:" + server.getLocalPort() + "/" + token;
+    }
+
+    private static String newToken() {
+        byte[] bytes = new byte[TOKEN_BYTES];
+        new SecureRandom().nextBytes(bytes);
+        StringBuilder hex = new StringBuilder(TOKEN_BYTES * 2);
+        for (byte b : bytes) {
+            hex.append(Character.forDigit((b >> 4) & 0x0F, 16)).append(Character.forDigit(b & 0x0F, 16));
+        }
+        return hex.toString();
+    }
+
+    public synchronized void addTrack(int trackIndex, MediaFormat format) {
+        String mime = format.getString(MediaFormat.KEY_MIME);
+        if (MediaFormat.MIMETYPE_VIDEO_AVC.equals(mime)) {
+            videoTrackIndex = trackIndex;
+            packetizer.setVideoConfig(concat(format.getByteBuffer("csd-0"), format.getByteBuffer("csd-1")));
+        } else if (MediaFormat.MIMETYPE_AUDIO_AAC.equals(mime)) {
+            int objectType = MediaCodecInfo.CodecProfileLevel.AACObjectLC;
+            ByteBuffer csd = format.getByteBuffer("csd-0");
+            if (csd != null && csd.remaining() > 0) {
+                objectType = (csd.get(csd.position()) & 0xFF) >> 3;
+            }
+            try {
+                packetizer.setAudioConfig(objectType,
+                        format.getInteger(MediaFormat.KEY_SAMPLE_RATE),
+                        format.getInteger(MediaFormat.KEY_CHANNEL_COUNT));
+                audioTrackIndex = trackIndex;
+            } catch (IllegalArgumentException e) {
+                Log.w(TAG, "Áudio fora da transmissão.", e);
+            }
+        } else {
+            Log.w(TAG, "Trilha não suportada na transmissão: " + mime);
+        }
+    }
+
+    public synchronized void writeSampleData(int trackIndex, ByteBuffer encodedData, MediaCodec.BufferInfo info) {
+        if (info.size == 0) {
+            return;
+        }
+        if ((info.flags & MediaCodec.BUFFER_FLAG_CODEC_CONFIG) != 0) {
+            // O config é guardado mesmo sem clientes: quem conectar depois precisa dele
+            if (trackIndex == videoTrackIndex) {
+                byte[] config = new byte[info.size];
+                copy(encodedData, info, config);
+                packetizer.setVideoConfig(config);
+            }
+            return;
+        }
+        // Sem clientes, nada de copiar e empacotar segurando o lock do muxer; quem conectar
+        // espera o próximo quadro-chave de qualquer forma
+        if (!server.hasClients()) {
+            return;
+        }
+
+        if (sample.length < info.size) {
+            sample = new byte[info.size + info.size / 2];
+        }
+        copy(encodedData, info, sample);
+
+        if (trackIndex == videoTrackIndex) {
+            boolean keyFrame = (info.flags & MediaCodec.BUFFER_FLAG_KEY_FRAME) != 0;
+            packetizer.writeVideo(sample, 0, info.size, info.presentationTimeUs, keyFrame);
+        } else if (trackIndex == audioTrackIndex) {
+            packetizer.writeAudio(sample, 0, info.size, info.presentationTimeUs);
+        }
+    }
+
+    private static void copy(ByteBuffer encodedData, MediaCodec.BufferInfo info, byte[] target) {
+        ByteBuffer source = encodedData.duplicate();
+        source.limit(info.offset + info.size);
+        source.position(info.offset);
+        source.get(target, 0, info.size);
+    }
+
+    public void release() {
+        server.stop();
+    }
+
+    private static byte[] concat(ByteBuffer first, ByteBuffer second) {
+        int length = (first != null ? first.remaining() : 0) + (second != null ? second.remaining() : 0);
+        byte[] result = new byte[length];
+        int position = 0;
+        if (first != null) {
+            int size = first.remaining();
+            first.duplicate().get(result, position, size);
+            position += size;
+        }
+        if (second != null) {
+            second.duplicate().get(result, position, second.remaining());
+        }
+        return result;
+    }
+}
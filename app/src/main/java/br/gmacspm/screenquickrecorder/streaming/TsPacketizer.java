@@ -0,0 +1,305 @@
+package br.gmacspm.screenquickrecorder.streaming;
+
+/**
+ * Empacota a saída dos encoders (H.264 Annex B e AAC cru) em MPEG-TS.
+ * Cada unidade de acesso vira um bloco de pacotes de 188 bytes entregue ao {@link PacketSink};
+ * blocos de quadros-chave começam com PAT/PMT para que um cliente possa entrar por ali.
+ * Não depende de APIs do Android para poder ser testado na JVM.
+ */
+public class TsPacketizer {
+
+    public interface PacketSink {
+        void onPackets(byte[] data, int offset, int length, boolean keyFrame);
+    }
+
+    public static final int PACKET_SIZE = 188;
+    static final int PID_PAT = 0x0000;
+    static final int PID_PMT = 0x1000;
+    static final int PID_VIDEO = 0x0100;
+    static final int PID_AUDIO = 0x0101;
+
+    private static final int STREAM_TYPE_H264 = 0x1B;
+    private static final int STREAM_TYPE_AAC_ADTS = 0x0F;
+    private static final int STREAM_ID_VIDEO = 0xE0;
+    private static final int STREAM_ID_AUDIO = 0xC0;
+    private static final int PES_HEADER_SIZE = 14; // start code + id + tamanho + flags + PTS
+    private static final int ADTS_HEADER_SIZE = 7;
+    // PTS adiantado em relação ao PCR para dar folga ao buffer do decodificador (700 ms)
+    private static final long PTS_OFFSET_90K = 63000;
+
+    private static final byte[] ACCESS_UNIT_DELIMITER = {0, 0, 0, 1, 0x09, (byte) 0xF0};
+    private static final int[] AAC_SAMPLE_RATES = {
+            96000, 88200, 64000, 48000, 44100, 32000, 24000, 22050, 16000, 12000, 11025, 8000, 7350
+    };
+    private static final int[] CRC_TABLE = new int[256];
+
+    static {
+        for (int i = 0; i < 256; i++) {
+            int crc = i << 24;
+            for (int j = 0; j < 8; j++) {
+                crc = (crc & 0x80000000) != 0 ? (crc << 1) ^ 0x04C11DB7 : crc << 1;
+            }
+            CRC_TABLE[i] = crc;
+        }
+    }
+
+    private final PacketSink sink;
+    private final int[] continuity = new int[0x2000];
+
+    private byte[] videoConfig = new byte[0];
+    private boolean hasAudio = false;
+    private int aacObjectType;
+    private int aacSampleRateIndex;
+    private int aacChannelConfig;
+
+    private boolean pmtHadAudio = false;
+    private int pmtVersion = 0;
+    private long basePtsUs = -1;
+
+    // Buffers reaproveitados entre chamadas; o sink deve copiar o que precisar manter
+    private byte[] pes = new byte[64 * 1024];
+    private byte[] out = new byte[64 * 1024];
+    private int outLength;
+
+    public TsPacketizer(PacketSink sink) {
+        this.sink = sink;
+    }
+
+    /** SPS e PPS em Annex B (com start codes), repetidos antes de cada quadro-chave. */
+    public synchronized void setVideoConfig(byte[] config) {
+        videoConfig = config != null ? config : new byte[0];
+    }
+
+    public synchronized void setAudioConfig(int aacObjectType, int sampleRate, int channelCount) {
+        int index = -1;
+        for (int i = 0; i < AAC_SAMPLE_RATES.length; i++) {
+            if (AAC_SAMPLE_RATES[i] == sampleRate) {
+                index = i;
+                break;
+            }
+        }
+        if (index < 0) {
+            throw new IllegalArgumentException("Taxa de amostragem sem índice ADTS: " + sampleRate);
+        }
+        this.aacObjectType = aacObjectType;
+        this.aacSampleRateIndex = index;
+        this.aacChannelConfig = channelCount;
+        this.hasAudio = true;
+    }
+
+    public synchronized void writeVideo(byte[] frame, int offset, int length, long ptsUs, boolean keyFrame) {
+        long ts90 = toTimestamp90k(ptsUs);
+        outLength = 0;
+        if (keyFrame) {
+            writeTables();
+        }
+
+        int prefixLength = ACCESS_UNIT_DELIMITER.length + (keyFrame ? videoConfig.length : 0);
+        int pesLength = beginPes(STREAM_ID_VIDEO, prefixLength + length, ts90 + PTS_OFFSET_90K);
+        System.arraycopy(ACCESS_UNIT_DELIMITER, 0, pes, pesLength, ACCESS_UNIT_DELIMITER.length);
+        pesLength += ACCESS_UNIT_DELIMITER.length;
+        if (keyFrame) {
+            System.arraycopy(videoConfig, 0, pes, pesLength, videoConfig.length);
+            pesLength += videoConfig.length;
+        }
+        System.arraycopy(frame, offset, pes, pesLength, length);
+        pesLength += length;
+
+        writePes(PID_VIDEO, pesLength, ts90, keyFrame);
+        sink.onPackets(out, 0, outLength, keyFrame);
+    }
+
+    public synchronized void writeAudio(byte[] frame, int offset, int length, long ptsUs) {
+        if (!hasAudio) {
+            return;
+        }
+        long ts90 = toTimestamp90k(ptsUs);
+        outLength = 0;
+
+        int frameLength = ADTS_HEADER_SIZE + length;
+        int pesLength = beginPes(STREAM_ID_AUDIO, frameLength, ts90 + PTS_OFFSET_90K);
+        pes[pesLength++] = (byte) 0xFF;
+        pes[pesLength++] = (byte) 0xF1;
+        pes[pesLength++] = (byte) ((((aacObjectType - 1) & 0x03) << 6)
+                | (aacSampleRateIndex << 2) | ((aacChannelConfig >> 2) & 0x01));
+        pes[pesLength++] = (byte) (((aacChannelConfig & 0x03) << 6) | ((frameLength >> 11) & 0x03));
+        pes[pesLength++] = (byte) ((frameLength >> 3) & 0xFF);
+        pes[pesLength++] = (byte) (((frameLength & 0x07) << 5) | 0x1F);
+        pes[pesLength++] = (byte) 0xFC;
+        System.arraycopy(frame, offset, pes, pesLength, length);
+        pesLength += length;
+
+        writePes(PID_AUDIO, pesLength, -1, false);
+        sink.onPackets(out, 0, outLength, false);
+    }
+
+    private long toTimestamp90k(long ptsUs) {
+        if (basePtsUs < 0) {
+            basePtsUs = ptsUs;
+        }
+        long relativeUs = Math.max(0, ptsUs - basePtsUs);
+        return (relativeUs * 9 / 100) & 0x1FFFFFFFFL;
+    }
+
+    /** Escreve o cabeçalho PES em {@link #pes} e retorna onde o payload começa. */
+    private int beginPes(int streamId, int payloadLength, long pts90) {
+        int required = PES_HEADER_SIZE + payloadLength;
+        if (pes.length < required) {
+            pes = new byte[required + required / 2];
+        }
+        int packetLength = 8 + payloadLength;
+        if (packetLength > 0xFFFF) {
+            packetLength = 0; // permitido apenas para vídeo
+        }
+        pes[0] = 0;
+        pes[1] = 0;
+        pes[2] = 1;
+        pes[3] = (byte) streamId;
+        pes[4] = (byte) (packetLength >> 8);
+        pes[5] = (byte) packetLength;
+        pes[6] = (byte) 0x80;
+        pes[7] = (byte) 0x80; // apenas PTS
+        pes[8] = 5;
+        pes[9] = (byte) (0x21 | ((pts90 >> 29) & 0x0E));
+        pes[10] = (byte) (pts90 >> 22);
+        pes[11] = (byte) (((pts90 >> 14) & 0xFE) | 0x01);
+        pes[12] = (byte) (pts90 >> 7);
+        pes[13] = (byte) (((pts90 << 1) & 0xFE) | 0x01);
+        return PES_HEADER_SIZE;
+    }
+
+    private void writePes(int pid, int pesLength, long pcr90, boolean randomAccess) {
+        ensureOutCapacity(outLength + (pesLength / 184 + 2) * PACKET_SIZE);
+        int position = 0;
+        boolean first = true;
+        while (position < pesLength) {
+            boolean withPcr = first && pcr90 >= 0;
+            boolean withRandomAccess = first && randomAccess;
+            // Campos fixos do adaptation field: byte de flags + 6 bytes de PCR
+            int adaptationFixed = (withPcr || withRandomAccess) ? 1 + (withPcr ? 6 : 0) : 0;
+            int room = 184 - (adaptationFixed > 0 ? 1 + adaptationFixed : 0);
+            int payload = Math.min(pesLength - position, room);
+            int stuffing = room - payload;
+            boolean hasAdaptation = adaptationFixed > 0 || stuffing > 0;
+
+            int p = outLength;
+            writePacketHeader(p, pid, first, hasAdaptation);
+            p += 4;
+            if (adaptationFixed > 0) {
+                out[p++] = (byte) (adaptationFixed + stuffing);
+                out[p++] = (byte) ((withRandomAccess ? 0x40 : 0) | (withPcr ? 0x10 : 0));
+                if (withPcr) {
+                    out[p++] = (byte) (pcr90 >> 25);
+                    out[p++] = (byte) (pcr90 >> 17);
+                    out[p++] = (byte) (pcr90 >> 9);
+                    out[p++] = (byte) (pcr90 >> 1);
+                    out[p++] = (byte) (((pcr90 & 0x01) << 7) | 0x7E);
+                    out[p++] = 0;
+                }
+                p = fill(p, stuffing);
+            } else if (stuffing > 0) {
+                out[p++] = (byte) (stuffing - 1);
+                if (stuffing > 1) {
+                    out[p++] = 0;
+                    p = fill(p, stuffing - 2);
+                }
+            }
+            System.arraycopy(pes, position, out, p, payload);
+            position += payload;
+            outLength += PACKET_SIZE;
+            first = false;
+        }
+    }
+
+    private void writeTables() {
+        if (hasAudio != pmtHadAudio) {
+            pmtVersion = (pmtVersion + 1) & 0x1F;
+            pmtHadAudio = hasAudio;
+        }
+
+        byte[] pat = {
+                0x00, (byte) 0xB0, 13, 0x00, 0x01, (byte) 0xC1, 0x00, 0x00,
+                0x00, 0x01, (byte) (0xE0 | (PID_PMT >> 8)), (byte) PID_PMT
+        };
+        writeSection(PID_PAT, pat, pat.length);
+
+        int sectionLength = 9 + (hasAudio ? 10 : 5) + 4;
+        byte[] pmt = new byte[3 + sectionLength - 4];
+        int i = 0;
+        pmt[i++] = 0x02;
+        pmt[i++] = (byte) 0xB0;
+        pmt[i++] = (byte) sectionLength;
+        pmt[i++] = 0x00;
+        pmt[i++] = 0x01;
+        pmt[i++] = (byte) (0xC1 | (pmtVersion << 1));
+        pmt[i++] = 0x00;
+        pmt[i++] = 0x00;
+        pmt[i++] = (byte) (0xE0 | (PID_VIDEO >> 8));
+        pmt[i++] = (byte) PID_VIDEO;
+        pmt[i++] = (byte) 0xF0;
+        pmt[i++] = 0x00;
+        i = writeStreamEntry(pmt, i, STREAM_TYPE_H264, PID_VIDEO);
+        if (hasAudio) {
+            writeStreamEntry(pmt, i, STREAM_TYPE_AAC_ADTS, PID_AUDIO);
+        }
+        writeSection(PID_PMT, pmt, pmt.length);
+    }
+
+    private static int writeStreamEntry(byte[] section, int i, int streamType, int pid) {
+        section[i++] = (byte) streamType;
+        section[i++] = (byte) (0xE0 | (pid >> 8));
+        section[i++] = (byte) pid;
+        section[i++] = (byte) 0xF0;
+        section[i++] = 0x00;
+        return i;
+    }
+
+    private void writeSection(int pid, byte[] section, int length) {
+        ensureOutCapacity(outLength + PACKET_SIZE);
+        int p = outLength;
+        writePacketHeader(p, pid, true, false);
+        p += 4;
+        out[p++] = 0x00; // pointer_field
+        System.arraycopy(section, 0, out, p, length);
+        p += length;
+        int crc = crc32(section, length);
+        out[p++] = (byte) (crc >> 24);
+        out[p++] = (byte) (crc >> 16);
+        out[p++] = (byte) (crc >> 8);
+        out[p++] = (byte) crc;
+        fill(p, outLength + PACKET_SIZE - p);
+        outLength += PACKET_SIZE;
+    }
+
+    private void writePacketHeader(int p, int pid, boolean payloadStart, boolean adaptation) {
+        int cc = continuity[pid];
+        continuity[pid] = (cc + 1) & 0x0F;
+        out[p] = 0x47;
+        out[p + 1] = (byte) ((payloadStart ? 0x40 : 0) | ((pid >> 8) & 0x1F));
+        out[p + 2] = (byte) pid;
+        out[p + 3] = (byte) ((adaptation ? 0x30 : 0x10) | cc);
+    }
+
+    private int fill(int p, int count) {
+        for (int i = 0; i < count; i++) {
+            out[p++] = (byte) 0xFF;
+        }
+        return p;
+    }
+
+    private void ensureOutCapacity(int required) {
+        if (out.length < required) {
+            byte[] grown = new byte[required + required / 2];
+            System.arraycopy(out, 0, grown, 0, outLength);
+            out = grown;
+        }
+    }
+
+    static int crc32(byte[] data, int length) {
+        int crc = 0xFFFFFFFF;
+        for (int i = 0; i < length; i++) {
+            crc = (crc << 8) ^ CRC_TABLE[((crc >>> 24) ^ data[i]) & 0xFF];
+        }
+        return crc;
+    }
+}
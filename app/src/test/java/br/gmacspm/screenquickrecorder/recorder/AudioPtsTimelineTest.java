@@ -0,0 +1,142 @@
+package br.gmacspm.screenquickrecorder.recorder;
+
+import org.junit.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class AudioPtsTimelineTest {
+
+    private static final int SAMPLE_RATE = 48000;
+    private static final int FRAME_SIZE = 1024;
+    private static final long FRAME_US = FRAME_SIZE * 1_000_000L / SAMPLE_RATE;
+    // Quadros que o encoder simulado segura antes de devolver a saída
+    private static final int ENCODER_DELAY = 2;
+
+    /** Relógio e encoder simulados: cada buffer tem um quadro AAC e o relógio anda junto. */
+    private static class Session {
+        final AudioPtsTimeline timeline = new AudioPtsTimeline(SAMPLE_RATE, FRAME_SIZE);
+        final ArrayDeque<Long> held = new ArrayDeque<>();
+        final List<Long> written = new ArrayList<>();
+        final List<Long> silent = new ArrayList<>();
+        final List<Long> realInputs = new ArrayList<>();
+        long nowUs = 1_000_000;
+        long buffers = 0;
+        boolean gated = false;
+
+        void encode() {
+            tick();
+            if (gated) {
+                // Como no InternalAudioRecorder: o silêncio pendente sai antes da entrada real
+                pollSilent();
+                gated = false;
+            }
+            timeline.onInputQueued(nowUs, FRAME_SIZE);
+            realInputs.add(nowUs);
+            held.addLast(nowUs);
+            while (held.size() > ENCODER_DELAY) {
+                long pts = held.removeFirst();
+                if (timeline.acceptEncoded(pts)) {
+                    written.add(pts);
+                }
+            }
+        }
+
+        void gate() {
+            tick();
+            gated = true;
+            timeline.addSilentSamples(FRAME_SIZE);
+            pollSilent();
+        }
+
+        private void pollSilent() {
+            long pts;
+            while ((pts = timeline.pollSilentPts(nowUs)) >= 0) {
+                written.add(pts);
+                silent.add(pts);
+            }
+        }
+
+        private void tick() {
+            buffers++;
+            nowUs = 1_000_000 + buffers * FRAME_SIZE * 1_000_000L / SAMPLE_RATE;
+        }
+    }
+
+    @Test
+    public void gateCycle_keepsPtsContinuousAndInOrder() {
+        Session session = new Session();
+        for (int i = 0; i < 20; i++) {
+            session.encode();
+        }
+        long lastRealBeforeGate = session.written.get(session.written.size() - 1);
+        long lastInputBeforeGate = session.realInputs.get(session.realInputs.size() - 1);
+
+        assertTrue(session.timeline.canOpenGate());
+        session.timeline.openGate();
+        for (int i = 0; i < 50; i++) {
+            session.gate();
+        }
+        for (int i = 0; i < 20; i++) {
+            session.encode();
+        }
+
+        // Sem buraco antes do silêncio: ele começa logo depois do último quadro real
+        assertEquals(lastRealBeforeGate + FRAME_US, (long) session.silent.get(0));
+        // Os quadros retidos no encoder também foram cobertos pelo silêncio
+        assertTrue(session.silent.contains(lastInputBeforeGate));
+
+        List<Long> written = session.written;
+        for (int i = 1; i < written.size(); i++) {
+            long delta = written.get(i) - written.get(i - 1);
+            assertTrue("PTS fora de ordem em " + i, delta > 0);
+            assertTrue("salto de " + delta + " us em " + i, delta <= FRAME_US + 1);
+        }
+    }
+
+    @Test
+    public void gateCycle_writesEveryRealFrameQueuedAfterGate() {
+        Session session = new Session();
+        for (int i = 0; i < 20; i++) {
+            session.encode();
+        }
+        session.timeline.openGate();
+        for (int i = 0; i < 50; i++) {
+            session.gate();
+        }
+        int firstAfterGate = session.realInputs.size();
+        for (int i = 0; i < 20; i++) {
+            session.encode();
+        }
+
+        long lastSilent = session.silent.get(session.silent.size() - 1);
+        List<Long> after = session.realInputs.subList(firstAfterGate,
+                session.realInputs.size() - ENCODER_DELAY);
+        for (long pts : after) {
+            assertTrue("quadro real descartado: " + pts, session.written.contains(pts));
+            assertTrue(pts > lastSilent);
+        }
+    }
+
+    @Test
+    public void silentFrames_neverAheadOfClock() {
+        AudioPtsTimeline timeline = new AudioPtsTimeline(SAMPLE_RATE, FRAME_SIZE);
+        timeline.onInputQueued(1_000_000, FRAME_SIZE);
+        assertTrue(timeline.acceptEncoded(1_000_000));
+        timeline.openGate();
+
+        // Muitas amostras de uma vez, mas o relógio só comporta dois quadros
+        timeline.addSilentSamples(10 * FRAME_SIZE);
+        long now = 1_000_000 + 3 * FRAME_US;
+        long pts;
+        int frames = 0;
+        while ((pts = timeline.pollSilentPts(now)) >= 0) {
+            assertTrue(pts < now);
+            frames++;
+        }
+        assertEquals(2, frames);
+    }
+}
@@ -0,0 +1,81 @@
+package br.gmacspm.screenquickrecorder.recorder;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class PcmResamplerTest {
+
+    private static final int CHANNELS = 2;
+    private static final int FRAME_BYTES = CHANNELS * 2;
+
+    @Test
+    public void downsample48kTo44k_producesExpectedFrameCount() {
+        PcmResampler resampler = new PcmResampler(48000, 44100, CHANNELS);
+        byte[] buffer = new byte[480 * FRAME_BYTES];
+
+        long outFrames = 0;
+        for (int i = 0; i < 100; i++) {
+            outFrames += resampler.process(buffer, buffer.length) / FRAME_BYTES;
+        }
+
+        // 48000 quadros de entrada = 1 s; a saída interpola até o último quadro recebido
+        assertEquals(44100, outFrames);
+    }
+
+    @Test
+    public void bufferSeams_matchSingleCall() {
+        int frames = 48000;
+        byte[] pcm = sine(frames, 1000, 48000);
+
+        PcmResampler whole = new PcmResampler(48000, 44100, CHANNELS);
+        int wholeLength = whole.process(pcm, pcm.length);
+        byte[] expected = whole.getOutput().clone();
+
+        // Buffers de tamanhos variados, inclusive de um único quadro
+        PcmResampler chunked = new PcmResampler(48000, 44100, CHANNELS);
+        byte[] actual = new byte[expected.length + 16 * FRAME_BYTES];
+        int[] sizes = {1, 7, 256, 480, 1023, 3};
+        int offset = 0;
+        int written = 0;
+        for (int i = 0; offset < frames; i++) {
+            int chunkFrames = Math.min(sizes[i % sizes.length], frames - offset);
+            byte[] chunk = new byte[chunkFrames * FRAME_BYTES];
+            System.arraycopy(pcm, offset * FRAME_BYTES, chunk, 0, chunk.length);
+            int length = chunked.process(chunk, chunk.length);
+            System.arraycopy(chunked.getOutput(), 0, actual, written, length);
+            written += length;
+            offset += chunkFrames;
+        }
+
+        assertEquals(wholeLength, written);
+        int maxJump = 0;
+        for (int i = 0; i < written; i += 2) {
+            int a = sample(expected, i);
+            int b = sample(actual, i);
+            assertTrue("amostra " + i / 2 + ": " + a + " != " + b, Math.abs(a - b) <= 1);
+            if (i >= FRAME_BYTES) {
+                maxJump = Math.max(maxJump, Math.abs(b - sample(actual, i - FRAME_BYTES)));
+            }
+        }
+        // Senoide de 1 kHz com amplitude 16000 a 44,1 kHz varia no máximo ~2280 por quadro
+        assertTrue("salto de " + maxJump, maxJump < 2400);
+    }
+
+    private static byte[] sine(int frames, double frequency, int sampleRate) {
+        byte[] pcm = new byte[frames * FRAME_BYTES];
+        for (int i = 0; i < frames; i++) {
+            int value = (int) Math.round(16000 * Math.sin(2 * Math.PI * frequency * i / sampleRate));
+            for (int c = 0; c < CHANNELS; c++) {
+                int offset = i * FRAME_BYTES + c * 2;
+                pcm[offset] = (byte) value;
+                pcm[offset + 1] = (byte) (value >> 8);
+            }
+        }
+        return pcm;
+    }
+
+    private static int sample(byte[] data, int offset) {
+        return (short) ((data[offset] & 0xFF) | (data[offset + 1] << 8));
+    }
+}
@@ -0,0 +1,85 @@
+package br.gmacspm.screenquickrecorder.recorder;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class SilenceGateTest {
+
+    private static final int SAMPLE_RATE = 48000;
+    private static final int CHANNELS = 2;
+    private static final int THRESHOLD = 8;
+    private static final long HOLD_MS = 2000;
+    private static final int BUFFER_FRAMES = 1024;
+    // 2000 ms a 48 kHz = 96000 quadros = 93,75 buffers de 1024
+    private static final int BUFFERS_TO_HOLD = 94;
+
+    @Test
+    public void opensOnlyAfterHold() {
+        SilenceGate gate = newGate();
+        byte[] silence = constant(BUFFER_FRAMES, THRESHOLD);
+
+        for (int i = 1; i < BUFFERS_TO_HOLD; i++) {
+            assertFalse("buffer " + i, gate.update(silence, silence.length));
+        }
+        assertTrue(gate.update(silence, silence.length));
+        assertTrue(gate.getSilentRunMs() >= HOLD_MS);
+    }
+
+    @Test
+    public void levelAboveThreshold_isNotSilence() {
+        SilenceGate gate = newGate();
+        byte[] quiet = constant(BUFFER_FRAMES, THRESHOLD + 1);
+
+        for (int i = 0; i < 2 * BUFFERS_TO_HOLD; i++) {
+            assertFalse(gate.update(quiet, quiet.length));
+        }
+        assertEquals(0, gate.getSilentRunMs());
+    }
+
+    @Test
+    public void loudStart_exitsBeforeScanningWholeBuffer() {
+        SilenceGate gate = newGate();
+        // Só o primeiro quadro existe; sem a saída antecipada a leitura passaria do fim do array
+        byte[] loud = constant(1, Short.MAX_VALUE);
+
+        assertFalse(gate.update(loud, BUFFER_FRAMES * CHANNELS * 2));
+        assertEquals(0, gate.getSilentRunMs());
+    }
+
+    @Test
+    public void singleLoudBuffer_resetsRun() {
+        SilenceGate gate = newGate();
+        byte[] silence = constant(BUFFER_FRAMES, 0);
+        byte[] loud = constant(BUFFER_FRAMES, 1000);
+
+        for (int i = 0; i < BUFFERS_TO_HOLD; i++) {
+            gate.update(silence, silence.length);
+        }
+        assertTrue(gate.update(silence, silence.length));
+
+        assertFalse(gate.update(loud, loud.length));
+        assertEquals(0, gate.getSilentRunMs());
+
+        // Depois do reset o hold inteiro precisa passar de novo
+        for (int i = 1; i < BUFFERS_TO_HOLD; i++) {
+            assertFalse("buffer " + i, gate.update(silence, silence.length));
+        }
+        assertTrue(gate.update(silence, silence.length));
+    }
+
+    private static SilenceGate newGate() {
+        return new SilenceGate(SAMPLE_RATE, CHANNELS, THRESHOLD, HOLD_MS);
+    }
+
+    private static byte[] constant(int frames, int value) {
+        byte[] pcm = new byte[frames * CHANNELS * 2];
+        for (int i = 0; i < pcm.length; i += 2) {
+            // Sinal alternado para não depender do sinal da amostra
+            int sample = (i / 2) % 2 == 0 ? value : -value;
+            pcm[i] = (byte) sample;
+            pcm[i + 1] = (byte) (sample >> 8);
+        }
+        return pcm;
+    }
+}
@@ -0,0 +1,116 @@
+package br.gmacspm.screenquickrecorder.streaming;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.*;
+
+public class LiveStreamServerTest {
+
+    private static final String TOKEN = "0123456789abcdef0123456789abcdef";
+    private static final byte[] CONFIG = {0, 0, 0, 1, 0x67, 0x64, 0, 0x29, 0, 0, 0, 1, 0x68, (byte) 0xEE};
+
+    private static int pid(byte[] data, int packet) {
+        int p = packet * TsPacketizer.PACKET_SIZE;
+        return ((data[p + 1] & 0x1F) << 8) | (data[p + 2] & 0xFF);
+    }
+
+    @Test
+    public void loopbackClient_receivesStreamFromKeyFrame() throws Exception {
+        LiveStreamServer server = new LiveStreamServer(0, 4 * 1024 * 1024, TOKEN);
+        server.start();
+        TsPacketizer packetizer = new TsPacketizer(server);
+        packetizer.setVideoConfig(CONFIG);
+
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), server.getLocalPort())) {
+            OutputStream out = socket.getOutputStream();
+            out.write(("GET /" + TOKEN + " HTTP/1.1\r\nHost: localhost\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+            out.flush();
+            InputStream in = socket.getInputStream();
+            String header = readHeader(in);
+            assertTrue(header.startsWith("HTTP/1.1 200 OK"));
+            assertTrue(header.contains("video/mp2t"));
+
+            // Quadros antes do primeiro quadro-chave não chegam ao cliente
+            packetizer.writeVideo(new byte[2000], 0, 2000, 0, false);
+            packetizer.writeVideo(new byte[2000], 0, 2000, 16_666, true);
+            packetizer.writeVideo(new byte[2000], 0, 2000, 33_333, false);
+
+            byte[] packet = new byte[TsPacketizer.PACKET_SIZE];
+            DataInputStream data = new DataInputStream(in);
+            data.readFully(packet);
+            assertEquals(0x47, packet[0] & 0xFF);
+            assertEquals(TsPacketizer.PID_PAT, pid(packet, 0));
+        } finally {
+            server.stop();
+        }
+    }
+
+    @Test
+    public void requestWithoutToken_isClosedWithoutResponse() throws Exception {
+        LiveStreamServer server = new LiveStreamServer(0, 4 * 1024 * 1024, TOKEN);
+        server.start();
+
+        try {
+            for (String path : new String[]{"/", "/" + TOKEN.substring(1), "/" + TOKEN + "x"}) {
+                try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), server.getLocalPort())) {
+                    socket.setSoTimeout(5_000);
+                    OutputStream out = socket.getOutputStream();
+                    out.write(("GET " + path + " HTTP/1.1\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+                    out.flush();
+                    assertEquals(-1, socket.getInputStream().read());
+                }
+            }
+            assertFalse(server.hasClients());
+        } finally {
+            server.stop();
+        }
+    }
+
+    @Test
+    public void slowClient_dropsGopsWithoutBlockingProducer() throws Exception {
+        LiveStreamServer server = new LiveStreamServer(0, 256 * 1024, TOKEN);
+        server.start();
+        TsPacketizer packetizer = new TsPacketizer(server);
+
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), server.getLocalPort())) {
+            socket.setReceiveBufferSize(4096);
+            OutputStream out = socket.getOutputStream();
+            out.write(("GET /" + TOKEN + " HTTP/1.1\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+            out.flush();
+            readHeader(socket.getInputStream());
+
+            // O cliente nunca lê: o produtor deve seguir e o servidor descartar GOPs
+            byte[] frame = new byte[64 * 1024];
+            long deadline = System.currentTimeMillis() + 10_000;
+            int frames = 0;
+            while (server.getDroppedGops() == 0 && System.currentTimeMillis() < deadline) {
+                packetizer.writeVideo(frame, 0, frame.length, frames * 16_666L, frames % 10 == 0);
+                frames++;
+                Thread.sleep(1);
+            }
+            assertTrue(server.getDroppedGops() > 0);
+        } finally {
+            server.stop();
+        }
+    }
+
+    private static String readHeader(InputStream in) throws Exception {
+        ByteArrayOutputStream header = new ByteArrayOutputStream();
+        int matched = 0;
+        while (matched < 4) {
+            int b = in.read();
+            assertTrue(b >= 0);
+            header.write(b);
+            matched = (b == (matched % 2 == 0 ? '\r' : '\n')) ? matched + 1 : (b == '\r' ? 1 : 0);
+        }
+        return header.toString("US-ASCII");
+    }
+}
@@ -0,0 +1,108 @@
+package br.gmacspm.screenquickrecorder.streaming;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class TsPacketizerTest {
+
+    private static final byte[] CONFIG = {0, 0, 0, 1, 0x67, 0x64, 0, 0x29, 0, 0, 0, 1, 0x68, (byte) 0xEE};
+
+    private static class CollectingSink implements TsPacketizer.PacketSink {
+        final List<byte[]> segments = new ArrayList<>();
+        final List<Boolean> keyFrames = new ArrayList<>();
+
+        @Override
+        public void onPackets(byte[] data, int offset, int length, boolean keyFrame) {
+            byte[] copy = new byte[length];
+            System.arraycopy(data, offset, copy, 0, length);
+            segments.add(copy);
+            keyFrames.add(keyFrame);
+        }
+    }
+
+    private static int pid(byte[] data, int packet) {
+        int p = packet * TsPacketizer.PACKET_SIZE;
+        return ((data[p + 1] & 0x1F) << 8) | (data[p + 2] & 0xFF);
+    }
+
+    @Test
+    public void keyFrame_startsWithTablesAndPcr() {
+        CollectingSink sink = new CollectingSink();
+        TsPacketizer packetizer = new TsPacketizer(sink);
+        packetizer.setVideoConfig(CONFIG);
+        packetizer.setAudioConfig(2, 48000, 2);
+
+        packetizer.writeVideo(new byte[5000], 0, 5000, 1_000_000, true);
+
+        byte[] data = sink.segments.get(0);
+        assertTrue(sink.keyFrames.get(0));
+        assertEquals(0, data.length % TsPacketizer.PACKET_SIZE);
+        for (int p = 0; p < data.length; p += TsPacketizer.PACKET_SIZE) {
+            assertEquals(0x47, data[p] & 0xFF);
+        }
+        assertEquals(TsPacketizer.PID_PAT, pid(data, 0));
+        assertEquals(TsPacketizer.PID_PMT, pid(data, 1));
+        assertEquals(TsPacketizer.PID_VIDEO, pid(data, 2));
+
+        int video = 2 * TsPacketizer.PACKET_SIZE;
+        assertEquals(0x40, data[video + 1] & 0x40); // payload_unit_start
+        assertEquals(0x30, data[video + 3] & 0x30); // adaptation + payload
+        assertEquals(0x50, data[video + 5] & 0xFF); // random access + PCR
+    }
+
+    @Test
+    public void sections_haveValidCrc() {
+        CollectingSink sink = new CollectingSink();
+        TsPacketizer packetizer = new TsPacketizer(sink);
+        packetizer.writeVideo(new byte[100], 0, 100, 0, true);
+
+        byte[] data = sink.segments.get(0);
+        for (int packet = 0; packet < 2; packet++) {
+            int start = packet * TsPacketizer.PACKET_SIZE + 5;
+            int sectionLength = ((data[start + 1] & 0x0F) << 8) | (data[start + 2] & 0xFF);
+            byte[] section = new byte[3 + sectionLength];
+            System.arraycopy(data, start, section, 0, section.length);
+            // O CRC calculado sobre a seção inteira, incluindo o próprio CRC, é zero
+            assertEquals(0, TsPacketizer.crc32(section, section.length));
+        }
+    }
+
+    @Test
+    public void continuityCounter_incrementsPerPid() {
+        CollectingSink sink = new CollectingSink();
+        TsPacketizer packetizer = new TsPacketizer(sink);
+        packetizer.writeVideo(new byte[1000], 0, 1000, 0, false);
+        packetizer.writeVideo(new byte[1000], 0, 1000, 16_666, false);
+
+        int expected = 0;
+        for (byte[] data : sink.segments) {
+            for (int p = 0; p < data.length; p += TsPacketizer.PACKET_SIZE) {
+                assertEquals(expected, data[p + 3] & 0x0F);
+                expected = (expected + 1) & 0x0F;
+            }
+        }
+    }
+
+    @Test
+    public void audio_isWrappedInAdts() {
+        CollectingSink sink = new CollectingSink();
+        TsPacketizer packetizer = new TsPacketizer(sink);
+        packetizer.setAudioConfig(2, 44100, 2);
+        packetizer.writeAudio(new byte[100], 0, 100, 0);
+
+        byte[] data = sink.segments.get(0);
+        assertEquals(TsPacketizer.PID_AUDIO, pid(data, 0));
+        // Pacote único: o adaptation field preenche o que sobra antes do PES
+        int payloadStart = 4 + 1 + (data[4] & 0xFF);
+        int adts = payloadStart + 14;
+        assertEquals(0xFF, data[adts] & 0xFF);
+        assertEquals(0xF1, data[adts + 1] & 0xFF);
+        int frameLength = ((data[adts + 3] & 0x03) << 11) | ((data[adts + 4] & 0xFF) << 3)
+                | ((data[adts + 5] & 0xFF) >> 5);
+        assertEquals(107, frameLength);
+    }
+}